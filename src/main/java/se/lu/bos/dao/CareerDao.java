@@ -0,0 +1,29 @@
+package se.lu.bos.dao;
+
+import se.lu.bos.model.Stats;
+import se.lu.bos.rest.dto.TotalReport;
+
+import java.util.List;
+
+/**
+ * The running career totals, see {@link se.lu.bos.model.CareerTotal}.
+ */
+public interface CareerDao {
+
+    /**
+     * Counts reports about to be saved, in the transaction saving them. Reports saved before, e.g. rebuilt ones,
+     * have what they counted as stored taken off again first.
+     */
+    void countSaved(List<Stats> statsList);
+
+    /**
+     * Counts up to maxReports stored reports not counted yet, e.g. ones stored before there were career totals.
+     *
+     * @return the number of reports counted, 0 when there are none left
+     */
+    int countUncounted(int maxReports);
+
+    TotalReport getTotalReport();
+
+    void clear();
+}
@@ -0,0 +1,119 @@
+package se.lu.bos.dao;
+
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import se.lu.bos.model.CareerTotal;
+import se.lu.bos.model.CareerTotal.Category;
+import se.lu.bos.model.Stats;
+import se.lu.bos.rest.dto.TotalReport;
+import se.lu.bos.util.TimeUtil;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+
+/**
+ * Updates the totals with one UPDATE ... SET amount = amount + delta per changed total, so that reports saved
+ * by concurrent transactions, e.g. a scan and a rescan, can't overwrite each other's counts.
+ */
+@Repository
+public class CareerDaoBean implements CareerDao {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Override
+    @Transactional
+    public void countSaved(List<Stats> statsList) {
+        CareerDelta delta = new CareerDelta();
+        for(Stats stats : statsList) {
+            if(stats.getId() != null) {
+                Stats stored = em.find(Stats.class, stats.getId());
+                if(stored != null && Boolean.TRUE.equals(stored.getCountedInTotals())) {
+                    delta.subtract(stored);
+                }
+            }
+            delta.add(stats);
+            stats.setCountedInTotals(true);
+        }
+        apply(delta);
+    }
+
+    @Override
+    @Transactional
+    public int countUncounted(int maxReports) {
+        List<Long> ids = em.createQuery("SELECT s.id FROM Stats s WHERE s.countedInTotals IS NULL OR s.countedInTotals = false ORDER BY s.id", Long.class)
+                .setMaxResults(maxReports)
+                .getResultList();
+        CareerDelta delta = new CareerDelta();
+        for(Long id : ids) {
+            Stats stats = em.find(Stats.class, id);
+            delta.add(stats);
+            stats.setCountedInTotals(true);
+        }
+        apply(delta);
+        return ids.size();
+    }
+
+    private void apply(CareerDelta delta) {
+        for(Map.Entry<Category, Map<String, Long>> byCategory : delta.getDeltas().entrySet()) {
+            for(Map.Entry<String, Long> byName : byCategory.getValue().entrySet()) {
+                int updated = em.createQuery("UPDATE CareerTotal c SET c.amount = c.amount + :delta WHERE c.category = :category AND c.name = :name")
+                        .setParameter("delta", byName.getValue())
+                        .setParameter("category", byCategory.getKey())
+                        .setParameter("name", byName.getKey())
+                        .executeUpdate();
+                if(updated == 0) {
+                    CareerTotal total = new CareerTotal();
+                    total.setCategory(byCategory.getKey());
+                    total.setName(byName.getKey());
+                    total.setAmount(byName.getValue());
+                    em.persist(total);
+                }
+            }
+        }
+        // E.g. a plane type no longer flown in any of the reports
+        em.createQuery("DELETE FROM CareerTotal c WHERE c.amount = 0").executeUpdate();
+    }
+
+    @Override
+    public TotalReport getTotalReport() {
+        Map<Category, Map<String, Long>> totals = new EnumMap<Category, Map<String, Long>>(Category.class);
+        for(Category category : Category.values()) {
+            totals.put(category, new TreeMap<String, Long>());
+        }
+        for(CareerTotal total : em.createQuery("SELECT c FROM CareerTotal c", CareerTotal.class).getResultList()) {
+            totals.get(total.getCategory()).put(total.getName(), total.getAmount());
+        }
+
+        TotalReport totalReport = new TotalReport();
+        totalReport.setMissions((int) single(totals, Category.MISSIONS));
+        totalReport.setMissionsSurvived(single(totals, Category.MISSIONS_SURVIVED));
+        totalReport.setMissionsDestroyed(single(totals, Category.MISSIONS_DESTROYED));
+        int flightTimeSeconds = (int) single(totals, Category.FLIGHT_SECONDS);
+        totalReport.setTotalFlightTimeSeconds(flightTimeSeconds);
+        totalReport.setTotalFlightTime(TimeUtil.fromSeconds(flightTimeSeconds));
+        totalReport.setKills((int) single(totals, Category.KILLS));
+        totalReport.setHits((int) single(totals, Category.HITS));
+        totalReport.getKillsByTargetType().putAll(totals.get(Category.KILLS_BY_TARGET_TYPE));
+        totalReport.getHitsByAmmoType().putAll(totals.get(Category.HITS_BY_AMMO_TYPE));
+        totalReport.getSortiesPerPlaneType().putAll(totals.get(Category.SORTIES_BY_PLANE_TYPE));
+        // Every plane flown is listed, also those without kills
+        for(String plane : totals.get(Category.SORTIES_BY_PLANE_TYPE).keySet()) {
+            Long kills = totals.get(Category.KILLS_BY_PLANE_TYPE).get(plane);
+            totalReport.getKillsInPlaneType().put(plane, kills != null ? kills : 0L);
+        }
+        return totalReport;
+    }
+
+    private static long single(Map<Category, Map<String, Long>> totals, Category category) {
+        Long amount = totals.get(category).get("");
+        return amount != null ? amount : 0L;
+    }
+
+    @Override
+    @Transactional
+    public void clear() {
+        em.createQuery("DELETE FROM CareerTotal c").executeUpdate();
+    }
+}
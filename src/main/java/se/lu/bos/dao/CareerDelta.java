@@ -0,0 +1,90 @@
+package se.lu.bos.dao;
+
+import se.lu.bos.model.CareerTotal.Category;
+import se.lu.bos.model.GameObject;
+import se.lu.bos.model.State;
+import se.lu.bos.model.Stats;
+import se.lu.bos.model.Terms;
+import se.lu.bos.util.TimeUtil;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * What adding and removing a number of reports changes in the {@link se.lu.bos.model.CareerTotal}s, counted the
+ * same way as the career page always has: kills only count root objects, e.g. not turrets or crew, while hits
+ * count every hit.
+ *
+ * Kills by target type and hits by ammo are counted by the codes of their Terms, like the TotalReportAccumulator
+ * does, and only named once all reports have been counted.
+ */
+class CareerDelta {
+
+    private final Map<Category, Map<String, Long>> deltas = new EnumMap<Category, Map<String, Long>>(Category.class);
+    private final Map<Category, Map<Integer, Long>> codedDeltas = new EnumMap<Category, Map<Integer, Long>>(Category.class);
+
+    void add(Stats stats) {
+        count(stats, 1);
+    }
+
+    void subtract(Stats stats) {
+        count(stats, -1);
+    }
+
+    Map<Category, Map<String, Long>> getDeltas() {
+        Map<Category, Map<String, Long>> named = new EnumMap<Category, Map<String, Long>>(deltas);
+        for(Map.Entry<Category, Map<Integer, Long>> byCategory : codedDeltas.entrySet()) {
+            for(Map.Entry<Integer, Long> byCode : byCategory.getValue().entrySet()) {
+                add(named, byCategory.getKey(), Terms.name(byCode.getKey()), byCode.getValue());
+            }
+        }
+        return named;
+    }
+
+    private void count(Stats stats, long sign) {
+        add(Category.MISSIONS, "", sign);
+        if(stats.getFinalState() == State.ALIVE) {
+            add(Category.MISSIONS_SURVIVED, "", sign);
+        } else if(stats.getFinalState() == State.DESTROYED) {
+            add(Category.MISSIONS_DESTROYED, "", sign);
+        }
+        if(stats.getTotalDuration() != null) {
+            add(Category.FLIGHT_SECONDS, "", sign * TimeUtil.toSeconds(stats.getTotalDuration()));
+        }
+        add(Category.SORTIES_BY_PLANE_TYPE, stats.getPilotPlane(), sign);
+
+        long kills = 0;
+        for(GameObject kill : stats.getKills()) {
+            if(kill.getParentId() == -1) {
+                kills++;
+                add(codedDeltas, Category.KILLS_BY_TARGET_TYPE, kill.getTypeCode(), sign);
+            }
+        }
+        add(Category.KILLS, "", sign * kills);
+        add(Category.KILLS_BY_PLANE_TYPE, stats.getPilotPlane(), sign * kills);
+
+        for(Map.Entry<Integer, Integer> entry : stats.getHitsByAmmoCode().entrySet()) {
+            add(codedDeltas, Category.HITS_BY_AMMO_TYPE, entry.getKey(), sign * entry.getValue());
+        }
+        add(Category.HITS, "", sign * stats.getHits().size());
+    }
+
+    private void add(Category category, String name, long delta) {
+        add(deltas, category, name, delta);
+    }
+
+    // Totals are grouped by name, e.g. a plane type, so there is nothing to count under a missing one
+    private static <K> void add(Map<Category, Map<K, Long>> deltas, Category category, K key, long delta) {
+        if(key == null || delta == 0) {
+            return;
+        }
+        Map<K, Long> byKey = deltas.get(category);
+        if(byKey == null) {
+            byKey = new HashMap<K, Long>();
+            deltas.put(category, byKey);
+        }
+        Long current = byKey.get(key);
+        byKey.put(key, current == null ? delta : current + delta);
+    }
+}
@@ -0,0 +1,31 @@
+package se.lu.bos.dao;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Stores the full mission report logs compressed and keyed by their SHA-256, apart from the reports derived
+ * from them.
+ */
+public interface LogStore {
+
+    boolean contains(String logHash);
+
+    /**
+     * Stores the log unless a log with the same hash is already stored.
+     */
+    void store(String logHash, String log);
+
+    /**
+     * Stores the log as it is read, one chunk at a time, unless a log with the same hash is already stored. The
+     * log is never held in memory as a whole, e.g. the large logs of a dedicated server.
+     */
+    void store(String logHash, Reader log) throws IOException;
+
+    /**
+     * @return a reader decompressing the log one chunk at a time as it is read, or null if there's no such log.
+     */
+    Reader open(String logHash);
+
+    int deleteAll();
+}
@@ -0,0 +1,145 @@
+package se.lu.bos.dao;
+
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import se.lu.bos.model.LogChunk;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Keeps each log as a series of deflate compressed {@link LogChunk}s. The sample logs shrink to about a quarter
+ * of their size.
+ *
+ * Chunks are compressed on their own so that a log can be read back one chunk at a time, a reader over a stored
+ * log never holds more than one compressed chunk.
+ */
+@Repository
+public class LogStoreBean implements LogStore {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // Chars of log per chunk
+    private static final int CHUNK_LENGTH = 1 << 20;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Override
+    public boolean contains(String logHash) {
+        return countChunks(logHash) > 0;
+    }
+
+    @Override
+    @Transactional
+    public void store(String logHash, String log) {
+        try {
+            store(logHash, new StringReader(log));
+        } catch (IOException e) {
+            // Can't happen reading from memory
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void store(String logHash, Reader log) throws IOException {
+        if(contains(logHash)) {
+            return;
+        }
+        char[] buffer = new char[CHUNK_LENGTH];
+        int index = 0;
+        int length = 0;
+        while(true) {
+            int read;
+            while(length < CHUNK_LENGTH && (read = log.read(buffer, length, CHUNK_LENGTH - length)) != -1) {
+                length += read;
+            }
+            if(length == 0 && index > 0) {
+                // The previous chunk ended right at the end of the log
+                return;
+            }
+            int end = length;
+            // Don't split a surrogate pair, its halves can't be encoded on their own
+            if(end == CHUNK_LENGTH && Character.isHighSurrogate(buffer[end - 1])) {
+                end--;
+            }
+            LogChunk chunk = new LogChunk();
+            chunk.setLogHash(logHash);
+            chunk.setChunkIndex(index++);
+            chunk.setRawLength(end);
+            chunk.setData(deflate(new String(buffer, 0, end).getBytes(UTF8)));
+            em.persist(chunk);
+            if(length < CHUNK_LENGTH) {
+                return;
+            }
+            // What was held back starts the next chunk
+            System.arraycopy(buffer, end, buffer, 0, length - end);
+            length -= end;
+        }
+    }
+
+    @Override
+    public Reader open(final String logHash) {
+        final long chunks = countChunks(logHash);
+        if(chunks == 0) {
+            return null;
+        }
+        Enumeration<InputStream> inflatedChunks = new Enumeration<InputStream>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < chunks;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if(!hasMoreElements()) {
+                    throw new NoSuchElementException();
+                }
+                byte[] data = em.createQuery("SELECT c.data FROM LogChunk c WHERE c.logHash = :logHash AND c.chunkIndex = :chunkIndex", byte[].class)
+                        .setParameter("logHash", logHash)
+                        .setParameter("chunkIndex", next++)
+                        .getSingleResult();
+                return new InflaterInputStream(new ByteArrayInputStream(data));
+            }
+        };
+        return new InputStreamReader(new SequenceInputStream(inflatedChunks), UTF8);
+    }
+
+    @Override
+    @Transactional
+    public int deleteAll() {
+        return em.createQuery("DELETE FROM LogChunk c").executeUpdate();
+    }
+
+    private long countChunks(String logHash) {
+        return em.createQuery("SELECT COUNT(c) FROM LogChunk c WHERE c.logHash = :logHash", Long.class)
+                .setParameter("logHash", logHash)
+                .getSingleResult();
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 8 + 64);
+            DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater);
+            out.write(raw);
+            out.close();
+            return compressed.toByteArray();
+        } catch (IOException e) {
+            // Can't happen writing to memory
+            throw new IllegalStateException(e);
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package se.lu.bos.dao;
 
+import se.lu.bos.model.FlightTrack;
+import se.lu.bos.model.GameObject;
+import se.lu.bos.model.Hit;
 import se.lu.bos.model.Stats;
+import se.lu.bos.rest.dto.ReportSummary;
 import se.lu.bos.rest.dto.TinyReport;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Created with IntelliJ IDEA.
@@ -15,14 +22,112 @@ import java.util.List;
 public interface StatsDao {
 
     boolean exists(String rootFileName);
+
+    /**
+     * @return those of the given root file names that already have a report, found with a single query per
+     * few hundred names rather than one query per name.
+     */
+    Set<String> findExistingRootFileNames(Collection<String> rootFileNames);
+
     Stats save(Stats stats);
+
+    /**
+     * Saves all reports in one transaction.
+     */
+    List<Stats> saveAll(List<Stats> statsList);
+
     Stats findById(Long id);
     Stats findByRootFileName(String rootFileName);
     List<Stats> getAll();
 
+    /**
+     * @return the metadata of all reports, newest first, without loading any of their collections
+     */
+    List<ReportSummary> getSummaries();
+
+    /**
+     * @return the metadata of the report, null if there's no such report
+     */
+    ReportSummary findSummary(Long id);
+
+    /**
+     * The sections of a single report, each read with one query and in mission time order. Empty if there's no
+     * such report.
+     */
+    List<Hit> findHits(Long id);
+    List<Hit> findHitsTaken(Long id);
+    List<GameObject> findKills(Long id);
+
+    /**
+     * @return the number of reports having a full log that were derived by a parser older than the given version
+     */
+    long countRebuildable(int olderThanVersion);
+
+    /**
+     * @return up to maxResults IDs, in ascending order and all greater than afterId, of reports having a full log
+     * that were derived by a parser older than the given version.
+     */
+    List<Long> findRebuildableIds(Long afterId, int olderThanVersion, int maxResults);
+
+    /**
+     * @return a detached Stats holding only what a rebuild starts from, i.e. the ID, root file name, report file
+     * date, log hash and player ID, without loading any of the derived collections. Null if there's no such report. Reports
+     * whose log has not been moved to the {@link LogStore} yet also get their full log.
+     */
+    Stats findForRebuild(Long id);
+
+    /**
+     * Moves the full logs of up to maxReports reports stored before there was a {@link LogStore} to the log store.
+     *
+     * @return the number of reports migrated, 0 when there are none left
+     */
+    int migrateLegacyLogs(int maxReports);
+
+    /**
+     * Packs the flight tracks of up to maxReports reports stored with one row per position.
+     *
+     * @return the number of reports migrated, 0 when there are none left
+     */
+    int migrateLegacyFlightTracks(int maxReports);
+
+    /**
+     * Codes the ammo, object types and countries of up to maxRows hits and up to maxRows game objects stored before
+     * there were {@link se.lu.bos.model.Term}s.
+     *
+     * @return the number of hits and game objects migrated, 0 when there are none left
+     */
+    int migrateLegacyTerms(int maxRows);
+
+    /**
+     * Counts the hits and kills of up to maxReports reports stored before reports kept such counts.
+     *
+     * @return the number of reports counted, 0 when there are none left
+     */
+    int summarizeUnsummarized(int maxReports);
+
+    /**
+     * @return the flight track of the report, without loading anything else. Null if there's no such report.
+     */
+    FlightTrack findFlightTrack(Long id);
+
+    /**
+     * @return when the report was last built by the parser, a rebuild replaces everything derived from the log.
+     * Null if there's no such report.
+     */
+    Date findCreated(Long id);
+
     int deleteAll();
 
-    List<TinyReport> getTinyReports();
+    /**
+     * Pages through the reports newest first, ordered by report file date and ID.
+     *
+     * @param beforeDate report file date of the last report of the previous page, null for the first page
+     * @param beforeId ID of the last report of the previous page, null for the first page
+     * @param pilotPlane only reports flown in this plane, null for all
+     * @param from only reports from this date on, null for no lower bound
+     * @param to only reports before this date, null for no upper bound
+     */
+    List<TinyReport> getTinyReports(Date beforeDate, Long beforeId, String pilotPlane, Date from, Date to, int maxResults);
 
     Stats update(Stats stats);
 }
@@ -2,19 +2,26 @@ package se.lu.bos.dao;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import se.lu.bos.model.FlightPosition;
+import se.lu.bos.model.FlightTrack;
+import se.lu.bos.model.GameObject;
+import se.lu.bos.model.Hit;
 import se.lu.bos.model.Stats;
+import se.lu.bos.rest.dto.ReportSummary;
 import se.lu.bos.rest.dto.TinyReport;
+import se.lu.bos.util.FlightTrackCodec;
+import se.lu.bos.util.LogHash;
 import se.lu.bos.util.TimeUtil;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.NonUniqueResultException;
 import javax.persistence.PersistenceContext;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
+import javax.persistence.Query;
+import java.util.*;
 
 /**
  * Created with IntelliJ IDEA.
@@ -28,9 +35,21 @@ public class StatsDaoBean implements StatsDao {
 
     private static final Logger log = LoggerFactory.getLogger(StatsDaoBean.class);
 
+    // Keeps the IN lists of the existence check well below what the database accepts as parameters
+    private static final int MAX_IN_LIST_SIZE = 500;
+
     @PersistenceContext
     EntityManager em;
 
+    @Autowired
+    LogStore logStore;
+
+    @Autowired
+    CareerDao careerDao;
+
+    @Autowired
+    TermDao termDao;
+
 
     @Override
     public boolean exists(String rootFileName) {
@@ -42,12 +61,46 @@ public class StatsDaoBean implements StatsDao {
         return n > 0;
     }
 
+    @Override
+    public Set<String> findExistingRootFileNames(Collection<String> rootFileNames) {
+        Set<String> existing = new HashSet<String>();
+        List<String> names = new ArrayList<String>(rootFileNames);
+        for(int from = 0; from < names.size(); from += MAX_IN_LIST_SIZE) {
+            List<String> batch = names.subList(from, Math.min(from + MAX_IN_LIST_SIZE, names.size()));
+            existing.addAll(em.createQuery("SELECT s.rootFileName FROM Stats s WHERE s.rootFileName IN :rootFileNames", String.class)
+                    .setParameter("rootFileNames", batch)
+                    .getResultList());
+        }
+        return existing;
+    }
+
     @Override
     @Transactional
     public Stats save(Stats stats) {
+        storeLog(stats);
+        stats.updateSummary();
+        termDao.storeNew();
+        careerDao.countSaved(Collections.singletonList(stats));
         return em.merge(stats);
     }
 
+    @Override
+    @Transactional
+    public List<Stats> saveAll(List<Stats> statsList) {
+        List<Stats> saved = new ArrayList<Stats>(statsList.size());
+        // The career totals are counted from the summaries
+        for(Stats stats : statsList) {
+            stats.updateSummary();
+        }
+        termDao.storeNew();
+        careerDao.countSaved(statsList);
+        for(Stats stats : statsList) {
+            storeLog(stats);
+            saved.add(em.merge(stats));
+        }
+        return saved;
+    }
+
     @Override
     public Stats findById(Long id) {
         Stats s = em.find(Stats.class, id);
@@ -74,6 +127,187 @@ public class StatsDaoBean implements StatsDao {
         return em.createQuery("SELECT s FROM Stats s ORDER BY s.created DESC", Stats.class).getResultList();
     }
 
+    private static final String SUMMARY = "SELECT NEW se.lu.bos.rest.dto.ReportSummary(s.id, s.rootFileName, s.missionName, " +
+            "s.gameDate, s.gameTime, s.totalDuration, s.reportFileDate, s.pilotName, s.pilotPlane, s.playerId, s.finalState, " +
+            "s.startingAmmo, s.finalAmmo, s.parserVersion) FROM Stats s";
+
+    @Override
+    public List<ReportSummary> getSummaries() {
+        return em.createQuery(SUMMARY + " ORDER BY s.created DESC", ReportSummary.class).getResultList();
+    }
+
+    @Override
+    public ReportSummary findSummary(Long id) {
+        List<ReportSummary> resultList = em.createQuery(SUMMARY + " WHERE s.id = :id", ReportSummary.class)
+                .setParameter("id", id)
+                .getResultList();
+        return resultList.isEmpty() ? null : resultList.get(0);
+    }
+
+    @Override
+    public List<Hit> findHits(Long id) {
+        return em.createQuery("SELECT h FROM Stats s JOIN s.hits h WHERE s.id = :id ORDER BY h.time", Hit.class)
+                .setParameter("id", id)
+                .getResultList();
+    }
+
+    @Override
+    public List<Hit> findHitsTaken(Long id) {
+        return em.createQuery("SELECT h FROM Stats s JOIN s.hitsTaken h WHERE s.id = :id ORDER BY h.time", Hit.class)
+                .setParameter("id", id)
+                .getResultList();
+    }
+
+    @Override
+    public List<GameObject> findKills(Long id) {
+        // Objects destroyed without a time of kill first, as in Stats.getKills()
+        List<GameObject> kills = em.createQuery("SELECT k FROM Stats s JOIN s.kills k WHERE s.id = :id ORDER BY k.timeOfKill ASC NULLS FIRST", GameObject.class)
+                .setParameter("id", id)
+                .getResultList();
+        // Served with every kill
+        for(GameObject kill : kills) {
+            kill.getDamageShares().size();
+        }
+        return kills;
+    }
+
+    private static final String REBUILDABLE = "(s.logHash IS NOT NULL OR s.legacyFullLog IS NOT NULL) AND (s.parserVersion IS NULL OR s.parserVersion < :version)";
+
+    @Override
+    public long countRebuildable(int olderThanVersion) {
+        return em.createQuery("SELECT COUNT(s) FROM Stats s WHERE " + REBUILDABLE, Long.class)
+                .setParameter("version", olderThanVersion)
+                .getSingleResult();
+    }
+
+    @Override
+    public List<Long> findRebuildableIds(Long afterId, int olderThanVersion, int maxResults) {
+        return em.createQuery("SELECT s.id FROM Stats s WHERE " + REBUILDABLE + " AND s.id > :afterId ORDER BY s.id", Long.class)
+                .setParameter("version", olderThanVersion)
+                .setParameter("afterId", afterId)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    @Override
+    public Stats findForRebuild(Long id) {
+        List<Object[]> resultList = em.createQuery("SELECT s.rootFileName, s.reportFileDate, s.logHash, s.legacyFullLog, s.playerId FROM Stats s WHERE s.id = :id")
+                .setParameter("id", id)
+                .getResultList();
+        if(resultList.isEmpty()) {
+            return null;
+        }
+        Object[] row = resultList.get(0);
+        Stats stats = new Stats();
+        stats.setId(id);
+        stats.setRootFileName((String) row[0]);
+        stats.setReportFileDate((Date) row[1]);
+        stats.setLogHash((String) row[2]);
+        // Not migrated yet, saving the rebuilt report moves the log to the log store
+        stats.setFullLog((String) row[3]);
+        stats.setPlayerId((Integer) row[4]);
+        return stats;
+    }
+
+    @Override
+    @Transactional
+    public int migrateLegacyLogs(int maxReports) {
+        List<Long> ids = em.createQuery("SELECT s.id FROM Stats s WHERE s.legacyFullLog IS NOT NULL ORDER BY s.id", Long.class)
+                .setMaxResults(maxReports)
+                .getResultList();
+        for(Long id : ids) {
+            String fullLog = em.createQuery("SELECT s.legacyFullLog FROM Stats s WHERE s.id = :id", String.class)
+                    .setParameter("id", id)
+                    .getSingleResult();
+            String logHash = LogHash.sha256(fullLog);
+            logStore.store(logHash, fullLog);
+            em.createQuery("UPDATE Stats s SET s.logHash = :logHash, s.legacyFullLog = NULL WHERE s.id = :id")
+                    .setParameter("logHash", logHash)
+                    .setParameter("id", id)
+                    .executeUpdate();
+        }
+        return ids.size();
+    }
+
+    @Override
+    @Transactional
+    public int migrateLegacyFlightTracks(int maxReports) {
+        List<Long> ids = em.createQuery("SELECT s.id FROM Stats s WHERE s.legacyFlightTrack IS NOT EMPTY ORDER BY s.id", Long.class)
+                .setMaxResults(maxReports)
+                .getResultList();
+        for(Long id : ids) {
+            Stats stats = em.find(Stats.class, id);
+            List<FlightPosition> positions = new ArrayList<FlightPosition>(stats.getLegacyFlightTrack());
+            // The IDs were generated as the positions were read from the log
+            Collections.sort(positions, new Comparator<FlightPosition>() {
+                @Override
+                public int compare(FlightPosition o1, FlightPosition o2) {
+                    return o1.getId().compareTo(o2.getId());
+                }
+            });
+            FlightTrack track = new FlightTrack(positions.size());
+            for(FlightPosition fp : positions) {
+                track.add(fp.getMissionTime(), fp.getX(), fp.getY(), fp.getZ());
+            }
+            stats.setTrack(track);
+            // Deletes the positions as orphans
+            stats.getLegacyFlightTrack().clear();
+        }
+        return ids.size();
+    }
+
+    @Override
+    @Transactional
+    public int migrateLegacyTerms(int maxRows) {
+        List<Hit> hits = em.createQuery("SELECT h FROM Hit h WHERE h.legacyAmmo IS NOT NULL OR h.legacyTarget IS NOT NULL " +
+                "OR h.legacyAttacker IS NOT NULL", Hit.class)
+                .setMaxResults(maxRows)
+                .getResultList();
+        for(Hit hit : hits) {
+            hit.migrateLegacyTerms();
+        }
+        List<GameObject> objects = em.createQuery("SELECT o FROM GameObject o WHERE o.legacyType IS NOT NULL OR o.legacyCountry IS NOT NULL", GameObject.class)
+                .setMaxResults(maxRows)
+                .getResultList();
+        for(GameObject object : objects) {
+            object.migrateLegacyTerms();
+        }
+        termDao.storeNew();
+        return hits.size() + objects.size();
+    }
+
+    @Override
+    @Transactional
+    public int summarizeUnsummarized(int maxReports) {
+        List<Long> ids = em.createQuery("SELECT s.id FROM Stats s WHERE s.nonExplosiveHitCount IS NULL ORDER BY s.id", Long.class)
+                .setMaxResults(maxReports)
+                .getResultList();
+        for(Long id : ids) {
+            em.find(Stats.class, id).updateSummary();
+        }
+        return ids.size();
+    }
+
+    @Override
+    public FlightTrack findFlightTrack(Long id) {
+        List<byte[]> resultList = em.createQuery("SELECT s.packedFlightTrack FROM Stats s WHERE s.id = :id", byte[].class)
+                .setParameter("id", id)
+                .getResultList();
+        if(resultList.isEmpty()) {
+            return null;
+        }
+        byte[] packed = resultList.get(0);
+        return packed != null ? FlightTrackCodec.decode(packed) : new FlightTrack();
+    }
+
+    @Override
+    public Date findCreated(Long id) {
+        List<Date> resultList = em.createQuery("SELECT s.created FROM Stats s WHERE s.id = :id", Date.class)
+                .setParameter("id", id)
+                .getResultList();
+        return resultList.isEmpty() ? null : resultList.get(0);
+    }
+
     @Override
     @Transactional
     public int deleteAll() {
@@ -82,22 +316,49 @@ public class StatsDaoBean implements StatsDao {
             em.remove(s);
             em.flush();
         }
+        logStore.deleteAll();
+        careerDao.clear();
         return resultList.size();
     }
 
     @Override
-    public List<TinyReport> getTinyReports() {
+    public List<TinyReport> getTinyReports(Date beforeDate, Long beforeId, String pilotPlane, Date from, Date to, int maxResults) {
+        StringBuilder jpql = new StringBuilder("SELECT s.id, s.missionName, s.reportFileDate, s.pilotPlane FROM Stats s WHERE 1 = 1");
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        if(beforeDate != null && beforeId != null) {
+            // Same order as the ORDER BY below, so the next page starts right after the last report of this one
+            jpql.append(" AND (s.reportFileDate < :beforeDate OR (s.reportFileDate = :beforeDate AND s.id < :beforeId))");
+            parameters.put("beforeDate", beforeDate);
+            parameters.put("beforeId", beforeId);
+        }
+        if(pilotPlane != null) {
+            jpql.append(" AND s.pilotPlane = :pilotPlane");
+            parameters.put("pilotPlane", pilotPlane);
+        }
+        if(from != null) {
+            jpql.append(" AND s.reportFileDate >= :from");
+            parameters.put("from", from);
+        }
+        if(to != null) {
+            jpql.append(" AND s.reportFileDate < :to");
+            parameters.put("to", to);
+        }
+        jpql.append(" ORDER BY s.reportFileDate DESC, s.id DESC");
+
+        Query query = em.createQuery(jpql.toString()).setMaxResults(maxResults);
+        for(Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            query.setParameter(parameter.getKey(), parameter.getValue());
+        }
         List<TinyReport> list = new ArrayList<TinyReport>();
-        List<Object[]> resultList = em.createQuery("SELECT s.id, s.missionName, s.reportFileDate, s.pilotPlane FROM Stats s").getResultList();
-        if(resultList != null) {
-            for(Object[] row : resultList) {
-                TinyReport tr = new TinyReport();
-                tr.setId((Long) row[0]);
-                tr.setTitle((String) row[1]);
-                tr.setCreated(TimeUtil.parseDate((Date) row[2]));
-                tr.setPilotPlane((String) row[3]);
-                list.add(tr);
-            }
+        List<Object[]> resultList = query.getResultList();
+        for(Object[] row : resultList) {
+            TinyReport tr = new TinyReport();
+            tr.setId((Long) row[0]);
+            tr.setTitle((String) row[1]);
+            tr.setReportFileDate((Date) row[2]);
+            tr.setCreated(TimeUtil.parseDate((Date) row[2]));
+            tr.setPilotPlane((String) row[3]);
+            list.add(tr);
         }
         return list;
     }
@@ -105,6 +366,17 @@ public class StatsDaoBean implements StatsDao {
     @Override
     @Transactional
     public Stats update(Stats stats) {
+        storeLog(stats);
+        stats.updateSummary();
+        termDao.storeNew();
+        careerDao.countSaved(Collections.singletonList(stats));
         return em.merge(stats);
     }
+
+    // Puts the log a report was just parsed from in the log store, the report only keeps its hash.
+    private void storeLog(Stats stats) {
+        if(stats.getFullLog() != null && stats.getLogHash() != null) {
+            logStore.store(stats.getLogHash(), stats.getFullLog());
+        }
+    }
 }
@@ -0,0 +1,13 @@
+package se.lu.bos.dao;
+
+/**
+ * Persists the {@link se.lu.bos.model.Terms} and loads them when the application starts.
+ */
+public interface TermDao {
+
+    /**
+     * Persists the terms given a code since the last call, in a transaction of its own so that they are stored
+     * even if the report using them is not. Called before saving reports.
+     */
+    void storeNew();
+}
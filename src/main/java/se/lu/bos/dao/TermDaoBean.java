@@ -0,0 +1,49 @@
+package se.lu.bos.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import se.lu.bos.model.Term;
+import se.lu.bos.model.Terms;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+@Repository(TermDaoBean.NAME)
+public class TermDaoBean implements TermDao {
+
+    private static final Logger log = LoggerFactory.getLogger(TermDaoBean.class);
+
+    // For the beans that code names to depend on, so the stored terms are loaded before the first name is coded
+    public static final String NAME = "termDaoBean";
+
+    @PersistenceContext
+    EntityManager em;
+
+    // Runs before anything that parses or saves reports, those beans are declared to depend on this one
+    @PostConstruct
+    public void init() {
+        List<Term> terms = em.createQuery("SELECT t FROM Term t", Term.class).getResultList();
+        Terms.load(terms);
+        log.info("Loaded " + terms.size() + " terms");
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void storeNew() {
+        List<Term> terms = Terms.takeUnsaved();
+        try {
+            for(Term term : terms) {
+                em.persist(term);
+            }
+            em.flush();
+        } catch (RuntimeException e) {
+            Terms.unsaved(terms);
+            throw e;
+        }
+    }
+}
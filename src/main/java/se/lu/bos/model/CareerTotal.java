@@ -0,0 +1,61 @@
+package se.lu.bos.model;
+
+import javax.persistence.*;
+
+/**
+ * One running total of the career page, e.g. the number of missions or the number of kills of one target type.
+ *
+ * Kept up to date as reports are saved, rebuilt and deleted, so that the career page reads these rows instead of
+ * every stored report. Totals of a single number have an empty name.
+ */
+@Entity
+@Table(name = "career_total", indexes = @Index(columnList = "category, name", unique = true))
+public class CareerTotal {
+
+    public enum Category {
+        MISSIONS, MISSIONS_SURVIVED, MISSIONS_DESTROYED, FLIGHT_SECONDS, KILLS, HITS,
+        KILLS_BY_TARGET_TYPE, HITS_BY_AMMO_TYPE, SORTIES_BY_PLANE_TYPE, KILLS_BY_PLANE_TYPE
+    }
+
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private Category category;
+
+    private String name;
+    private Long amount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public void setCategory(Category category) {
+        this.category = category;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,66 @@
+package se.lu.bos.model;
+
+import javax.persistence.Embeddable;
+
+/**
+ * One attacker's part in the destruction of a game object, by the number of AType:1 hits landed on it. Kept on
+ * the destroyed {@link GameObject}, most hits first.
+ */
+@Embeddable
+public class DamageShare {
+
+    private Integer attackerId;
+    // The type of the attacker's root object, e.g. the plane of a gunner, stored as the code of its Term
+    private Integer attackerTypeCode;
+    private Integer hits;
+    private Float share;
+
+    public DamageShare() {
+    }
+
+    public DamageShare(Integer attackerId, Integer hits, Float share) {
+        this.attackerId = attackerId;
+        this.hits = hits;
+        this.share = share;
+    }
+
+    public Integer getAttackerId() {
+        return attackerId;
+    }
+
+    public void setAttackerId(Integer attackerId) {
+        this.attackerId = attackerId;
+    }
+
+    public String getAttacker() {
+        return Terms.name(attackerTypeCode);
+    }
+
+    public void setAttacker(String attacker) {
+        this.attackerTypeCode = Terms.code(Term.Kind.OBJECT_TYPE, attacker);
+    }
+
+    public Integer getHits() {
+        return hits;
+    }
+
+    public void setHits(Integer hits) {
+        this.hits = hits;
+    }
+
+    /**
+     * @return the hits of this attacker over the hits of all attackers on the object, 0 - 1
+     */
+    public Float getShare() {
+        return share;
+    }
+
+    public void setShare(Float share) {
+        this.share = share;
+    }
+
+    @Override
+    public String toString() {
+        return attackerId + ":" + hits;
+    }
+}
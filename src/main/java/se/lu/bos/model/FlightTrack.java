@@ -0,0 +1,108 @@
+package se.lu.bos.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The positions of a flight in primitive arrays, in the order they were logged.
+ *
+ * Stored with its report as one packed blob, see {@link se.lu.bos.util.FlightTrackCodec}, rather than one
+ * row per position.
+ */
+public class FlightTrack {
+
+    private int[] ticks;
+    private float[] xs;
+    private float[] ys;
+    private float[] zs;
+    private int size = 0;
+    // Set on snapshots, whose arrays belong to the track they were taken of until they are added to
+    private boolean shared = false;
+
+    public FlightTrack() {
+        this(64);
+    }
+
+    public FlightTrack(int capacity) {
+        capacity = Math.max(1, capacity);
+        ticks = new int[capacity];
+        xs = new float[capacity];
+        ys = new float[capacity];
+        zs = new float[capacity];
+    }
+
+    private FlightTrack(FlightTrack track) {
+        ticks = track.ticks;
+        xs = track.xs;
+        ys = track.ys;
+        zs = track.zs;
+        size = track.size;
+    }
+
+    public void add(int tick, float x, float y, float z) {
+        if(size == ticks.length || shared) {
+            int capacity = Math.max(1, size << 1);
+            ticks = Arrays.copyOf(ticks, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            shared = false;
+        }
+        ticks[size] = tick;
+        xs[size] = x;
+        ys[size] = y;
+        zs[size] = z;
+        size++;
+    }
+
+    /**
+     * @return the positions so far, without copying them. Positions are only ever added past the end, so the
+     * snapshot is not affected by positions added to this track later on, e.g. while it is being serialized.
+     */
+    public FlightTrack snapshot() {
+        FlightTrack snapshot = new FlightTrack(this);
+        snapshot.shared = true;
+        return snapshot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTick(int index) {
+        return ticks[index];
+    }
+
+    public float getX(int index) {
+        return xs[index];
+    }
+
+    public float getY(int index) {
+        return ys[index];
+    }
+
+    public float getZ(int index) {
+        return zs[index];
+    }
+
+    public FlightPosition getPosition(int index) {
+        FlightPosition fp = new FlightPosition();
+        fp.setMissionTime(ticks[index]);
+        fp.setX(xs[index]);
+        fp.setY(ys[index]);
+        fp.setZ(zs[index]);
+        return fp;
+    }
+
+    /**
+     * @return one FlightPosition per position, e.g. for drawing the track on the map
+     */
+    public List<FlightPosition> toPositions() {
+        List<FlightPosition> positions = new ArrayList<FlightPosition>(size);
+        for(int i = 0; i < size; i++) {
+            positions.add(getPosition(i));
+        }
+        return positions;
+    }
+}
@@ -1,5 +1,6 @@
 package se.lu.bos.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import se.lu.bos.util.TimeUtil;
 
 import javax.persistence.*;
@@ -31,10 +32,18 @@ public class GameObject {
 
     private Integer gameObjectId;
     private String name;
-    private String type;
-    private String country;
+    // The object type and country are stored as the codes of their Terms
+    private Integer typeCode;
+    private Integer countryCode;
     private Integer parentId = -1;
 
+    // Where the names were kept before there were terms, emptied as the objects are migrated. Only the migration
+    // codes them, reading the codes of an object not migrated yet never hands out new ones.
+    @Column(name = "type")
+    private String legacyType;
+    @Column(name = "country")
+    private String legacyCountry;
+
     @Enumerated(EnumType.STRING)
     private State state = State.ALIVE;
 
@@ -83,16 +92,22 @@ public class GameObject {
     @OneToMany(cascade = CascadeType.ALL)
     private List<GameObject> children = new ArrayList<GameObject>();
 
+    // Every attacker's share of the hits on a destroyed object, most hits first
+    @ElementCollection
+    @CollectionTable(name = "game_object_damage_share")
+    @OrderColumn(name = "shareIndex")
+    private List<DamageShare> damageShares = new ArrayList<DamageShare>();
+
     public GameObject() {
     }
 
     public GameObject(Integer gameObjectId, String name, String type, GameObjectType gameObjectType, Integer parentId, String country) {
         this.gameObjectId = gameObjectId;
         this.name = name;
-        this.type = type;
+        this.typeCode = Terms.code(Term.Kind.OBJECT_TYPE, type);
         this.gameObjectType = gameObjectType;
         this.parentId = parentId;
-        this.country = country;
+        this.countryCode = Terms.code(Term.Kind.COUNTRY, country);
     }
 
     public Integer getGameObjectId() {
@@ -112,19 +127,44 @@ public class GameObject {
     }
 
     public String getCountry() {
-        return country;
+        return countryCode == null ? legacyCountry : Terms.name(countryCode);
     }
 
     public void setCountry(String country) {
-        this.country = country;
+        this.countryCode = Terms.code(Term.Kind.COUNTRY, country);
+        this.legacyCountry = null;
     }
 
     public String getType() {
-        return type;
+        return typeCode == null ? legacyType : Terms.name(typeCode);
     }
 
     public void setType(String type) {
-        this.type = type;
+        this.typeCode = Terms.code(Term.Kind.OBJECT_TYPE, type);
+        this.legacyType = null;
+    }
+
+    @JsonIgnore
+    public Integer getTypeCode() {
+        return typeCode == null ? Terms.find(Term.Kind.OBJECT_TYPE, legacyType) : typeCode;
+    }
+
+    /**
+     * Moves names stored before there were terms to codes.
+     *
+     * @return true if there was anything to move
+     */
+    public boolean migrateLegacyTerms() {
+        if(legacyType == null && legacyCountry == null) {
+            return false;
+        }
+        if(legacyType != null) {
+            setType(legacyType);
+        }
+        if(legacyCountry != null) {
+            setCountry(legacyCountry);
+        }
+        return true;
     }
 
     public State getState() {
@@ -159,6 +199,14 @@ public class GameObject {
         this.children = children;
     }
 
+    public List<DamageShare> getDamageShares() {
+        return damageShares;
+    }
+
+    public void setDamageShares(List<DamageShare> damageShares) {
+        this.damageShares = damageShares;
+    }
+
     public Integer getTimeOfKill() {
         return timeOfKill;
     }
@@ -187,7 +235,7 @@ public class GameObject {
                 "id=" + id +
                 ", gameObjectId=" + gameObjectId +
                 ", name='" + name + '\'' +
-                ", type='" + type + '\'' +
+                ", type='" + getType() + '\'' +
                 ", parentId=" + parentId +
                 ", state=" + state +
                 ", gameObjectType=" + gameObjectType +
@@ -1,5 +1,6 @@
 package se.lu.bos.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import se.lu.bos.util.TimeUtil;
 
 import javax.persistence.*;
@@ -27,7 +28,8 @@ public class Hit {
         this.id = id;
     }
 
-    private String ammo;
+    // Ammo and object types are stored as the codes of their Terms
+    private Integer ammoCode;
     private Long time;
     private Float damage;
 
@@ -35,27 +37,42 @@ public class Hit {
     private Integer targetId;
 
     private String name;
-    private String target;
+    private Integer targetCode;
 
     private String attackerName;
-    private String attacker;
+    private Integer attackerCode;
+
+    // Where the names were kept before there were terms, emptied as the hits are migrated. Only the migration
+    // codes them, reading the codes of a hit not migrated yet never hands out new ones.
+    @Column(name = "ammo")
+    private String legacyAmmo;
+    @Column(name = "target")
+    private String legacyTarget;
+    @Column(name = "attacker")
+    private String legacyAttacker;
 
     public Hit() {
     }
 
     public Hit(String ammo, Long time, Integer attackerId, Integer targetId) {
-        this.ammo = ammo;
+        this.ammoCode = Terms.code(Term.Kind.AMMO, ammo);
         this.time = time;
         this.attackerId = attackerId;
         this.targetId = targetId;
     }
 
     public String getTarget() {
-        return target;
+        return targetCode == null ? legacyTarget : Terms.name(targetCode);
     }
 
     public void setTarget(String target) {
-        this.target = target;
+        this.targetCode = Terms.code(Term.Kind.OBJECT_TYPE, target);
+        this.legacyTarget = null;
+    }
+
+    @JsonIgnore
+    public Integer getTargetCode() {
+        return targetCode == null ? Terms.find(Term.Kind.OBJECT_TYPE, legacyTarget) : targetCode;
     }
 
     public String getName() {
@@ -67,11 +84,17 @@ public class Hit {
     }
 
     public String getAmmo() {
-        return ammo;
+        return ammoCode == null ? legacyAmmo : Terms.name(ammoCode);
     }
 
     public void setAmmo(String ammo) {
-        this.ammo = ammo;
+        this.ammoCode = Terms.code(Term.Kind.AMMO, ammo);
+        this.legacyAmmo = null;
+    }
+
+    @JsonIgnore
+    public Integer getAmmoCode() {
+        return ammoCode == null ? Terms.find(Term.Kind.AMMO, legacyAmmo) : ammoCode;
     }
 
     public Long getTime() {
@@ -115,11 +138,38 @@ public class Hit {
     }
 
     public String getAttacker() {
-        return attacker;
+        return attackerCode == null ? legacyAttacker : Terms.name(attackerCode);
     }
 
     public void setAttacker(String attacker) {
-        this.attacker = attacker;
+        this.attackerCode = Terms.code(Term.Kind.OBJECT_TYPE, attacker);
+        this.legacyAttacker = null;
+    }
+
+    @JsonIgnore
+    public Integer getAttackerCode() {
+        return attackerCode == null ? Terms.find(Term.Kind.OBJECT_TYPE, legacyAttacker) : attackerCode;
+    }
+
+    /**
+     * Moves names stored before there were terms to codes.
+     *
+     * @return true if there was anything to move
+     */
+    public boolean migrateLegacyTerms() {
+        if(legacyAmmo == null && legacyTarget == null && legacyAttacker == null) {
+            return false;
+        }
+        if(legacyAmmo != null) {
+            setAmmo(legacyAmmo);
+        }
+        if(legacyTarget != null) {
+            setTarget(legacyTarget);
+        }
+        if(legacyAttacker != null) {
+            setAttacker(legacyAttacker);
+        }
+        return true;
     }
 
     // Each tick is 1/50 of a second, e.g. 20 ms
@@ -138,7 +188,7 @@ public class Hit {
     public String toString() {
         return "Hit{" +
                 "id=" + id +
-                ", ammo='" + ammo + '\'' +
+                ", ammo='" + getAmmo() + '\'' +
                 ", time=" + time +
                 ", damage=" + damage +
                 ", attackerId=" + attackerId +
@@ -153,13 +203,13 @@ public class Hit {
 
         Hit hit = (Hit) o;
 
-        if (!ammo.equals(hit.ammo)) return false;
+        if (!getAmmo().equals(hit.getAmmo())) return false;
 
         return true;
     }
 
     @Override
     public int hashCode() {
-        return ammo.hashCode();
+        return getAmmo().hashCode();
     }
 }
@@ -0,0 +1,67 @@
+package se.lu.bos.model;
+
+import javax.persistence.*;
+
+/**
+ * One deflate compressed piece of a stored mission report log.
+ *
+ * Logs are stored by their SHA-256 (see {@link Stats#getLogHash()}) rather than per report, so a log is only ever
+ * stored once. Keeping them out of report_stats means listing and querying reports never reads any log text.
+ */
+@Entity
+@Table(name = "log_chunk", indexes = @Index(columnList = "logHash, chunkIndex", unique = true))
+public class LogChunk {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private String logHash;
+    private Integer chunkIndex;
+
+    // Length of the chunk before compression, in chars of the log
+    private Integer rawLength;
+
+    @Lob
+    private byte[] data;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getLogHash() {
+        return logHash;
+    }
+
+    public void setLogHash(String logHash) {
+        this.logHash = logHash;
+    }
+
+    public Integer getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public void setChunkIndex(Integer chunkIndex) {
+        this.chunkIndex = chunkIndex;
+    }
+
+    public Integer getRawLength() {
+        return rawLength;
+    }
+
+    public void setRawLength(Integer rawLength) {
+        this.rawLength = rawLength;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+}
@@ -1,6 +1,7 @@
 package se.lu.bos.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import se.lu.bos.util.FlightTrackCodec;
 import se.lu.bos.util.TimeUtil;
 
 import javax.persistence.*;
@@ -14,7 +15,10 @@ import java.util.*;
  * To change this template use File | Settings | File Templates.
  */
 @Entity
-@Table(name = "report_stats")
+@Table(name = "report_stats", indexes = {
+        @Index(columnList = "reportFileDate, id"),
+        @Index(columnList = "pilotPlane, reportFileDate, id")
+})
 public class Stats {
 
     @Id
@@ -32,26 +36,53 @@ public class Stats {
     private Integer startingAmmo;
     private Integer finalAmmo;
 
-    @OneToMany(cascade = CascadeType.ALL)
+    // Hits and kills are kept in tick order as they are added, see addHit and addKill. Rebuilding a report replaces
+    // all of its hits and game objects, the replaced rows are deleted rather than left unreferenced.
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinTable(name = "stats_hits_inflicted")
+    @OrderBy("time")
     private List<Hit> hits = new ArrayList<Hit>();
 
-    @OneToMany(cascade = CascadeType.ALL)
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinTable(name = "stats_hits_taken")
     private List<Hit> hitsTaken = new ArrayList<Hit>();
 
-    @OneToMany(cascade = CascadeType.ALL)
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinTable(name = "stats_gameobject_kills")
+    @OrderBy("timeOfKill")
     private List<GameObject> kills = new ArrayList<GameObject>();
 
-    @OneToMany(cascade = CascadeType.ALL)
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinTable(name = "stats_gameobjects")
     private List<GameObject> associatedObjects = new ArrayList<GameObject>();
 
-    @OneToMany(cascade = CascadeType.ALL)
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinTable(name = "stats_all_gameobjects")
     private List<GameObject> allGameObjects = new ArrayList<GameObject>();
 
+    // Counts of the hits and kills, computed by updateSummary once they are all added and stored with the report
+    // rather than counted on every read. The hit counts are null for reports stored before there were counts.
+    private Integer explosiveHitCount;
+    private Integer nonExplosiveHitCount;
+
+    // Keyed by the code of the ammo's Term
+    @ElementCollection
+    @CollectionTable(name = "stats_hits_by_ammo")
+    @MapKeyColumn(name = "ammoCode")
+    @Column(name = "hitCount")
+    private Map<Integer, Integer> hitsByAmmo = new HashMap<Integer, Integer>();
+
+    @ElementCollection
+    @CollectionTable(name = "stats_kills_by_type")
+    @MapKeyColumn(name = "gameObjectType")
+    @MapKeyEnumerated(EnumType.STRING)
+    @Column(name = "killCount")
+    private Map<GameObjectType, Integer> killsByObjectType = new HashMap<GameObjectType, Integer>();
+
+    // Whether hits or kills have changed since the counts were last updated
+    @Transient
+    private boolean summaryStale;
+
     private Integer playerId;
     private String pilotName;
     private String pilotPlane;
@@ -59,22 +90,43 @@ public class Stats {
     @Temporal(TemporalType.TIMESTAMP)
     private Date created;
 
-    @Lob
+    // The log this report was parsed from, only held until it has been put in the LogStore
+    @Transient
     private String fullLog;
 
+    // Where logs were kept before the LogStore, emptied as the reports are migrated
+    @Lob
+    @Column(name = "fullLog")
+    private String legacyFullLog;
+
+    // The version of the parser that derived this report and the SHA-256 of the log it was derived from
+    private Integer parserVersion;
+    private String logHash;
+
+    // Whether this report is counted in the career totals
+    private Boolean countedInTotals;
+
     @Enumerated(EnumType.STRING)
     private State finalState;
 
-    @OneToMany(cascade = CascadeType.ALL)
+    // The flight track packed by FlightTrackCodec, only decoded when asked for
+    @Lob
+    private byte[] packedFlightTrack;
+
+    @Transient
+    private FlightTrack track;
+
+    // Where flight tracks were kept before they were packed, emptied as the reports are migrated
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinTable(name = "stats_flight_track")
-    private List<FlightPosition> flightTrack = new ArrayList<FlightPosition>();
+    private List<FlightPosition> legacyFlightTrack = new ArrayList<FlightPosition>();
 
     @Transient
     private static Comparator<Hit> hitComparator = new Comparator<Hit>() {
 
         @Override
         public int compare(Hit o1, Hit o2) {
-            return o1.getTime().compareTo(o2.getTime());
+            return Long.compare(hitTick(o1), hitTick(o2));
         }
     };
 
@@ -83,12 +135,7 @@ public class Stats {
 
         @Override
         public int compare(GameObject o1, GameObject o2) {
-            if(o1.getTimeOfKill() != null && o2.getTimeOfKill() != null) {
-                return o1.getTimeOfKill().compareTo(o2.getTimeOfKill());
-            }
-            if(o1.getTimeOfKill() == null) return -1;
-            if(o2.getTimeOfKill() == null) return 1;
-            return 0;
+            return Long.compare(killTick(o1), killTick(o2));
         }
     };
 
@@ -143,24 +190,132 @@ public class Stats {
         this.associatedObjects = associatedObjects;
     }
 
+    /**
+     * @return the kills in order of time of kill, kills without a time first. Use addKill to add kills.
+     */
     public List<GameObject> getKills() {
-        Collections.sort(kills, gameObjectComparator);
-        return kills;
+        return Collections.unmodifiableList(kills);
     }
 
-
     public void setKills(List<GameObject> kills) {
+        Collections.sort(kills, gameObjectComparator);
         this.kills = kills;
+        this.summaryStale = true;
+    }
+
+    /**
+     * Inserts the kill in order of time of kill, after any kills at the same tick.
+     */
+    public void addKill(GameObject kill) {
+        kills.add(killIndex(killTick(kill), true), kill);
+        summaryStale = true;
+    }
+
+    /**
+     * Sets the time of kill, moving the object to its new place if it is one of the kills. Only the same instance
+     * is moved, the parser may hold other instances equal to a kill.
+     */
+    public void updateTimeOfKill(GameObject object, Integer timeOfKill) {
+        for(int i = 0; i < kills.size(); i++) {
+            if(kills.get(i) == object) {
+                kills.remove(i);
+                object.setTimeOfKill(timeOfKill);
+                addKill(object);
+                return;
+            }
+        }
+        object.setTimeOfKill(timeOfKill);
     }
 
+    /**
+     * @return the kills from fromTick up to and including toTick, as a view of the kills
+     */
+    public List<GameObject> getKillsBetween(int fromTick, int toTick) {
+        int from = killIndex(fromTick, false);
+        return Collections.unmodifiableList(kills.subList(from, Math.max(from, killIndex(toTick, true))));
+    }
 
+    /**
+     * @return the hits in order of time. Use addHit to add hits.
+     */
     public List<Hit> getHits() {
-        Collections.sort(hits, hitComparator);
-        return hits;
+        return Collections.unmodifiableList(hits);
     }
 
     public void setHits(List<Hit> hits) {
+        Collections.sort(hits, hitComparator);
         this.hits = hits;
+        this.summaryStale = true;
+    }
+
+    /**
+     * Inserts the hit in order of time, after any hits at the same tick.
+     */
+    public void addHit(Hit hit) {
+        hits.add(hitIndex(hitTick(hit), true), hit);
+        summaryStale = true;
+    }
+
+    /**
+     * @return the hits from fromTick up to and including toTick, as a view of the hits
+     */
+    public List<Hit> getHitsBetween(long fromTick, long toTick) {
+        int from = hitIndex(fromTick, false);
+        return Collections.unmodifiableList(hits.subList(from, Math.max(from, hitIndex(toTick, true))));
+    }
+
+    /**
+     * @return the index of the first hit later than tick, or at or later than tick unless after is set
+     */
+    private int hitIndex(long tick, boolean after) {
+        int size = hits.size();
+        // Hits are mostly added in order, so check the end first
+        if(size == 0 || (after ? hitTick(hits.get(size - 1)) <= tick : hitTick(hits.get(size - 1)) < tick)) {
+            return size;
+        }
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            long middleTick = hitTick(hits.get(middle));
+            if(after ? middleTick <= tick : middleTick < tick) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the first kill later than tick, or at or later than tick unless after is set
+     */
+    private int killIndex(long tick, boolean after) {
+        int size = kills.size();
+        if(size == 0 || (after ? killTick(kills.get(size - 1)) <= tick : killTick(kills.get(size - 1)) < tick)) {
+            return size;
+        }
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            long middleTick = killTick(kills.get(middle));
+            if(after ? middleTick <= tick : middleTick < tick) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long hitTick(Hit hit) {
+        return hit.getTime() == null ? Long.MIN_VALUE : hit.getTime();
+    }
+
+    // Kills without a time of kill sort first
+    private static long killTick(GameObject kill) {
+        return kill.getTimeOfKill() == null ? Long.MIN_VALUE : kill.getTimeOfKill();
     }
 
     public List<Hit> getHitsTaken() {
@@ -212,15 +367,82 @@ public class Stats {
         this.fullLog = fullLog;
     }
 
-    @Transient
-    public Integer getAircraftKillCount() {
-        int count = 0;
+    @JsonIgnore
+    public String getLegacyFullLog() {
+        return legacyFullLog;
+    }
+
+    public void setLegacyFullLog(String legacyFullLog) {
+        this.legacyFullLog = legacyFullLog;
+    }
+
+    @JsonIgnore
+    public Boolean getCountedInTotals() {
+        return countedInTotals;
+    }
+
+    public void setCountedInTotals(Boolean countedInTotals) {
+        this.countedInTotals = countedInTotals;
+    }
+
+    public Integer getParserVersion() {
+        return parserVersion;
+    }
+
+    public void setParserVersion(Integer parserVersion) {
+        this.parserVersion = parserVersion;
+    }
+
+    public String getLogHash() {
+        return logHash;
+    }
+
+    public void setLogHash(String logHash) {
+        this.logHash = logHash;
+    }
+
+    /**
+     * Counts the hits by ammo and explosiveness and the kills by type of object, unless that has been done since
+     * the hits and kills last changed. Done as a report is saved, the getters of the counts only read them.
+     */
+    public void updateSummary() {
+        if(!summaryStale && nonExplosiveHitCount != null) {
+            return;
+        }
+        hitsByAmmo.clear();
+        for(Hit hit : hits) {
+            Integer ammoCode = hit.getAmmoCode();
+            if(ammoCode == null) {
+                continue;
+            }
+            Integer count = hitsByAmmo.get(ammoCode);
+            hitsByAmmo.put(ammoCode, count == null ? 1 : count + 1);
+        }
+        // Named once per type of ammo rather than once per hit
+        int explosive = 0;
+        for(Map.Entry<Integer, Integer> entry : hitsByAmmo.entrySet()) {
+            String ammo = Terms.name(entry.getKey());
+            if(ammo != null && ammo.contains("explosion")) {
+                explosive += entry.getValue();
+            }
+        }
+        explosiveHitCount = explosive;
+        nonExplosiveHitCount = hits.size() - explosive;
+
+        killsByObjectType.clear();
         for(GameObject kill : kills) {
-            if(kill.getGameObjectType() == GameObjectType.VEHICLE) {
-                count++;
+            GameObjectType type = kill.getGameObjectType();
+            if(type != null) {
+                Integer count = killsByObjectType.get(type);
+                killsByObjectType.put(type, count == null ? 1 : count + 1);
             }
         }
-        return count;
+        summaryStale = false;
+    }
+
+    @Transient
+    public Integer getAircraftKillCount() {
+        return getKillsOfType(GameObjectType.VEHICLE);
     }
 
     @Transient
@@ -236,45 +458,62 @@ public class Stats {
 
     @Transient
     public Integer getPilotKillCount() {
-        int count = 0;
-        for(GameObject kill : kills) {
-            if(kill.getGameObjectType() == GameObjectType.PILOT) {
-                count++;
-            }
-        }
-        return count;
+        return getKillsOfType(GameObjectType.PILOT);
+    }
+
+    @Transient
+    public Integer getKillsOfType(GameObjectType type) {
+        Integer count = killsByObjectType.get(type);
+        return count == null ? 0 : count;
     }
 
     @Transient
     public Integer getNonExplosiveHits() {
-        int count = 0;
-        for(Hit hit : hits) {
-            if(!hit.getAmmo().contains("explosion")) {
-                count++;
-            }
-        }
-        return count;
+        return nonExplosiveHitCount;
+    }
+
+    @Transient
+    public Integer getExplosiveHits() {
+        return explosiveHitCount;
     }
 
     @Transient
     public Integer getHitsOfType(String ammo) {
-        int count = 0;
-        for(Hit hit : hits) {
-            if(hit.getAmmo().equals(ammo)) {
-                count++;
-            }
+        Integer count = hitsByAmmo.get(Terms.find(Term.Kind.AMMO, ammo));
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @return the number of hits of each type of ammo, hits without an ammo type are not counted
+     */
+    @Transient
+    public Map<String, Integer> getHitsByAmmo() {
+        Map<String, Integer> named = new HashMap<String, Integer>();
+        for(Map.Entry<Integer, Integer> entry : hitsByAmmo.entrySet()) {
+            named.put(Terms.name(entry.getKey()), entry.getValue());
         }
-        return count;
+        return named;
     }
 
+    /**
+     * @return the number of hits of each type of ammo by the code of its Term, as aggregated across reports
+     */
+    @JsonIgnore
+    @Transient
+    public Map<Integer, Integer> getHitsByAmmoCode() {
+        return Collections.unmodifiableMap(hitsByAmmo);
+    }
+
+    /**
+     * @return the types of ammo that hit something, in alphabetical order
+     */
     @Transient
     public List<String> getUniqueAmmoTypes() {
-        List<String> types = new ArrayList<String>();
-        for(Hit h : hits) {
-            if(!types.contains(h.getAmmo())) {
-                types.add(h.getAmmo());
-            }
+        List<String> types = new ArrayList<String>(hitsByAmmo.size());
+        for(Integer ammoCode : hitsByAmmo.keySet()) {
+            types.add(Terms.name(ammoCode));
         }
+        Collections.sort(types);
         return types;
     }
 
@@ -351,12 +590,55 @@ public class Stats {
         return finalState;
     }
 
+    /**
+     * The flight track as one FlightPosition per position, e.g. for drawing it on the map.
+     */
     public List<FlightPosition> getFlightTrack() {
-        return flightTrack;
+        return getTrack().toPositions();
+    }
+
+    @JsonIgnore
+    public FlightTrack getTrack() {
+        if(track == null) {
+            track = packedFlightTrack != null ? FlightTrackCodec.decode(packedFlightTrack) : new FlightTrack();
+        }
+        return track;
+    }
+
+    /**
+     * Packs the track right away, positions added to it later on are not stored unless it is set again.
+     */
+    public void setTrack(FlightTrack track) {
+        this.track = track;
+        this.packedFlightTrack = FlightTrackCodec.encode(track);
+    }
+
+    /**
+     * Sets the track without packing it, for stats that are shown but never saved, like those of a mission still
+     * being played.
+     */
+    public void setUnpackedTrack(FlightTrack track) {
+        this.track = track;
+        this.packedFlightTrack = null;
+    }
+
+    @JsonIgnore
+    public byte[] getPackedFlightTrack() {
+        return packedFlightTrack;
+    }
+
+    public void setPackedFlightTrack(byte[] packedFlightTrack) {
+        this.packedFlightTrack = packedFlightTrack;
+        this.track = null;
+    }
+
+    @JsonIgnore
+    public List<FlightPosition> getLegacyFlightTrack() {
+        return legacyFlightTrack;
     }
 
-    public void setFlightTrack(List<FlightPosition> flightTrack) {
-        this.flightTrack = flightTrack;
+    public void setLegacyFlightTrack(List<FlightPosition> legacyFlightTrack) {
+        this.legacyFlightTrack = legacyFlightTrack;
     }
 
     //    public void setAllGameObjects(List<GameObject> allGameObjects) {
@@ -0,0 +1,61 @@
+package se.lu.bos.model;
+
+import javax.persistence.*;
+
+/**
+ * One of the few hundred distinct names that recur across all reports, e.g. SHELL_GER_20x82_AP or Bf 109 G-2.
+ *
+ * Hits and game objects store the code of their ammo, object types and country rather than the name itself,
+ * see {@link Terms}.
+ */
+@Entity
+@Table(name = "term", indexes = @Index(columnList = "kind, name", unique = true))
+public class Term {
+
+    public enum Kind {
+        AMMO,
+        OBJECT_TYPE,
+        COUNTRY
+    }
+
+    @Id
+    private Integer code;
+
+    @Enumerated(EnumType.STRING)
+    private Kind kind;
+
+    private String name;
+
+    public Term() {
+    }
+
+    public Term(Integer code, Kind kind, String name) {
+        this.code = code;
+        this.kind = kind;
+        this.name = name;
+    }
+
+    public Integer getCode() {
+        return code;
+    }
+
+    public void setCode(Integer code) {
+        this.code = code;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public void setKind(Kind kind) {
+        this.kind = kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,97 @@
+package se.lu.bos.model;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The codes of all {@link Term}s, shared by every report in memory so that each name is held once.
+ *
+ * Names get their code the first time they are seen, e.g. as the parser sets them on hits and game objects, and
+ * are persisted by the TermDao before the reports using them are saved. The stored terms have to be loaded before
+ * the first name is coded, which is why the beans that parse reports depend on the TermDaoBean.
+ */
+public final class Terms {
+
+    private static final Map<Term.Kind, Map<String, Integer>> codes = new EnumMap<Term.Kind, Map<String, Integer>>(Term.Kind.class);
+    private static final Map<Integer, String> names = new ConcurrentHashMap<Integer, String>();
+
+    // Guarded by the class, as is adding codes
+    private static final List<Term> unsaved = new ArrayList<Term>();
+    private static int nextCode = 1;
+
+    static {
+        for(Term.Kind kind : Term.Kind.values()) {
+            codes.put(kind, new ConcurrentHashMap<String, Integer>());
+        }
+    }
+
+    private Terms() {
+    }
+
+    /**
+     * @return the code of the name, given one if it's new. Null for a null name.
+     */
+    public static Integer code(Term.Kind kind, String name) {
+        if(name == null) {
+            return null;
+        }
+        Integer code = codes.get(kind).get(name);
+        if(code != null) {
+            return code;
+        }
+        synchronized(Terms.class) {
+            code = codes.get(kind).get(name);
+            if(code == null) {
+                code = nextCode++;
+                // Named before it can be found, so a code that has been handed out always has its name
+                names.put(code, name);
+                codes.get(kind).put(name, code);
+                unsaved.add(new Term(code, kind, name));
+            }
+            return code;
+        }
+    }
+
+    /**
+     * @return the code of the name, null if it has none or is null. Unlike {@link #code(Term.Kind, String)} a new
+     * name is not given a code, e.g. when looking up counts by name.
+     */
+    public static Integer find(Term.Kind kind, String name) {
+        return name == null ? null : codes.get(kind).get(name);
+    }
+
+    /**
+     * @return the name of the code, null for a null or unknown code.
+     */
+    public static String name(Integer code) {
+        return code == null ? null : names.get(code);
+    }
+
+    /**
+     * Adds stored terms, e.g. all of them at startup.
+     */
+    public static synchronized void load(Collection<Term> terms) {
+        for(Term term : terms) {
+            names.put(term.getCode(), term.getName());
+            codes.get(term.getKind()).put(term.getName(), term.getCode());
+            nextCode = Math.max(nextCode, term.getCode() + 1);
+        }
+    }
+
+    /**
+     * @return the terms given a code since the last call, which the caller has to persist or put back with
+     * {@link #unsaved(Collection)}.
+     */
+    public static synchronized List<Term> takeUnsaved() {
+        List<Term> terms = new ArrayList<Term>(unsaved);
+        unsaved.clear();
+        return terms;
+    }
+
+    /**
+     * Puts back terms that could not be persisted, to be persisted along with the next ones.
+     */
+    public static synchronized void unsaved(Collection<Term> terms) {
+        unsaved.addAll(terms);
+    }
+}
@@ -0,0 +1,59 @@
+package se.lu.bos.parser;
+
+/**
+ * The action types ("AType:n") written by the simulator into the mission report logs.
+ *
+ * Only the codes are significant, the names are just here to make the parser code readable.
+ */
+public enum AType {
+    MISSION_START(0),
+    HIT(1),
+    DAMAGE(2),
+    KILL(3),
+    PLAYER_MISSION_END(4),
+    TAKEOFF(5),
+    LANDING(6),
+    MISSION_END(7),
+    MISSION_OBJECTIVE(8),
+    AIRFIELD_INFO(9),
+    PLAYER_PLANE_SPAWN(10),
+    GROUP_INIT(11),
+    GAME_OBJECT_SPAWNED(12),
+    INFLUENCE_AREA_HEADER(13),
+    INFLUENCE_AREA_BOUNDARY(14),
+    LOG_VERSION(15),
+    BOT_DEINIT(16),
+    POSITION_CHANGED(17),
+    BOT_EJECT_LEAVE(18),
+    ROUND_END(19),
+    PLAYER_JOINED(20),
+    PLAYER_LEFT(21);
+
+    private static final AType[] BY_CODE = new AType[22];
+
+    static {
+        for(AType t : values()) {
+            BY_CODE[t.code] = t;
+        }
+    }
+
+    private final int code;
+
+    AType(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return the AType for the given code, or null if the code is unknown to us.
+     */
+    public static AType fromCode(int code) {
+        if(code < 0 || code >= BY_CODE.length) {
+            return null;
+        }
+        return BY_CODE[code];
+    }
+}
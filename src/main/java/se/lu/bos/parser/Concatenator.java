@@ -12,53 +12,142 @@ import java.util.*;
  */
 public class Concatenator {
 
+    // Replaced as a whole, so a Concatenator may be shared by several threads
+    private volatile ReportDirectoryIndex index;
+
+    public Concatenator() {
+    }
+
+    /**
+     * Uses an already built index of the reports directory, e.g. one shared by all reports of a scan.
+     */
+    public Concatenator(ReportDirectoryIndex index) {
+        this.index = index;
+    }
+
     public Date getFirstFileDate(String baseFolder, String baseFileName) {
-        File dir = new File(baseFolder);
-        for(File f : dir.listFiles()) {
-            if(f.getName().startsWith(baseFileName)) {
-                return new Date(f.lastModified());
-            }
-        }
-        return new Date();
+        Date date = indexFor(baseFolder).getFirstFileDate(baseFileName);
+        return date != null ? date : new Date();
     }
 
     // missionReport(2014-11-30_17-14-34)
     public String buildFromBaseFileName(String baseFolder, String baseFileName) throws IOException {
-        File dir = new File(baseFolder);
         StringBuilder buf = new StringBuilder();
         BufferedReader br = null;
 
-        List<File> fileList = Arrays.asList(dir.listFiles());
+        for(File f : findChunkFiles(baseFolder, baseFileName)) {
+            br = new BufferedReader(new FileReader(f));
+            try {
+                StringBuilder sb = new StringBuilder();
+                String line = br.readLine();
+
+                while (line != null) {
+                    sb.append(line);
+                    sb.append(System.lineSeparator());
+                    line = br.readLine();
+                }
+                buf.append(sb.toString());
+            } finally {
+                br.close();
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * @return the same text as {@link #buildFromBaseFileName(String, String)}, read from the chunk files one row at
+     * a time as it is read itself, e.g. to hash and store the log without holding it in memory.
+     */
+    public Reader openFromBaseFileName(String baseFolder, String baseFileName) {
+        return new ChunkFileReader(findChunkFiles(baseFolder, baseFileName));
+    }
 
-        // Note that we sort the file list by create time instead of name so they are processed in the correct order
-        // we will later use the last entry to get total duration.
-        Collections.sort(fileList, new Comparator<File>() {
+    /**
+     * Feeds the memory mapped chunk files of a report to the tokenizer, without ever building the full log.
+     */
+    public LogEvents streamFromBaseFileName(String baseFolder, String baseFileName, LogTokenizer tokenizer) throws IOException {
+        MappedLogReader reader = new MappedLogReader();
+        for(File f : findChunkFiles(baseFolder, baseFileName)) {
+            reader.read(f, tokenizer);
+        }
+        return tokenizer.getEvents();
+    }
 
-            @Override
-            public int compare(File o1, File o2) {
-                return new Long(o1.lastModified()).compareTo(new Long(o2.lastModified()));
+    /**
+     * @return the missionReport(...)[n].txt files of the report, ordered by n. We will later use the last entry
+     * to get total duration.
+     */
+    public List<File> findChunkFiles(String baseFolder, String baseFileName) {
+        return indexFor(baseFolder).getChunkFiles(baseFileName);
+    }
+
+    // Reads the chunk files row by row, ending each row like buildFromBaseFileName does. One file is open at a time.
+    private static class ChunkFileReader extends Reader {
+
+        private final Iterator<File> files;
+        private BufferedReader current;
+        private String row = "";
+        private int pos = 0;
+
+        ChunkFileReader(List<File> files) {
+            this.files = files.iterator();
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if(len == 0) {
+                return 0;
             }
-        });
-        for(File f : fileList) {
-            if(f.getName().startsWith(baseFileName) && f.getName().endsWith(".txt")) {
-                br = new BufferedReader(new FileReader(f));
-                try {
-                    StringBuilder sb = new StringBuilder();
-                    String line = br.readLine();
-
-                    while (line != null) {
-                        sb.append(line);
-                        sb.append(System.lineSeparator());
-                        line = br.readLine();
+            while(pos == row.length()) {
+                if(!nextRow()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, row.length() - pos);
+            row.getChars(pos, pos + n, cbuf, off);
+            pos += n;
+            return n;
+        }
+
+        private boolean nextRow() throws IOException {
+            while(true) {
+                if(current == null) {
+                    if(!files.hasNext()) {
+                        return false;
                     }
-                    buf.append(sb.toString());
-                } finally {
-                    br.close();
+                    current = new BufferedReader(new FileReader(files.next()));
                 }
+                String line = current.readLine();
+                if(line != null) {
+                    row = line + System.lineSeparator();
+                    pos = 0;
+                    return true;
+                }
+                current.close();
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if(current != null) {
+                current.close();
+                current = null;
             }
+            while(files.hasNext()) {
+                files.next();
+            }
+        }
+    }
 
+    // The directory is only listed once per Concatenator, unless it is asked about another folder.
+    private ReportDirectoryIndex indexFor(String baseFolder) {
+        ReportDirectoryIndex current = index;
+        if(current == null || !current.getFolder().equals(new File(baseFolder))) {
+            current = ReportDirectoryIndex.scan(baseFolder);
+            index = current;
         }
-        return buf.toString();
+        return current;
     }
 
 }
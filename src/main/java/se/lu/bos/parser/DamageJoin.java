@@ -0,0 +1,52 @@
+package se.lu.bos.parser;
+
+/**
+ * Joins AType:1 hits to their AType:2 damage rows on (tick, attackerId, targetId).
+ *
+ * T:65095 AType:1 AMMO:SHELL_GER_20x82_AP AID:1865727 TID:822271
+ * T:65095 AType:2 DMG:0.030 AID:1865727 TID:822271 POS(114849.367,512.380,131898.188)
+ *
+ * Both the hits and the damage rows come out of the log in tick order, so this is a single forward merge: the
+ * damage cursor only ever moves forward and each lookup only looks at the damage rows of the hit's own tick.
+ * When the same attacker hits the same target several times within a tick, the n:th hit gets the n:th damage row.
+ */
+class DamageJoin {
+
+    private final MissionEventStore store;
+    private final EventList damageRows = new EventList();
+    private final boolean[] consumed;
+    private int position = 0;
+
+    /**
+     * @param events tick ordered events of the store, anything but AType:2 is ignored
+     */
+    DamageJoin(MissionEventStore store, EventList events) {
+        this.store = store;
+        for(int i = 0; i < events.size(); i++) {
+            if(store.getType(events.get(i)) == AType.DAMAGE) {
+                damageRows.add(events.get(i));
+            }
+        }
+        consumed = new boolean[damageRows.size()];
+    }
+
+    /**
+     * Must be called with hits in non-decreasing tick order.
+     *
+     * @return the damage of the matching AType:2 row, or null if the hit didn't cause any damage.
+     */
+    Float damageFor(int hit) {
+        int tick = store.getTick(hit);
+        while(position < damageRows.size() && store.getTick(damageRows.get(position)) < tick) {
+            position++;
+        }
+        for(int i = position; i < damageRows.size() && store.getTick(damageRows.get(i)) == tick; i++) {
+            int row = damageRows.get(i);
+            if(!consumed[i] && store.getAttackerId(row) == store.getAttackerId(hit) && store.getTargetId(row) == store.getTargetId(hit)) {
+                consumed[i] = true;
+                return store.getDamage(row);
+            }
+        }
+        return null;
+    }
+}
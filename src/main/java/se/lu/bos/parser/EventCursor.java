@@ -0,0 +1,218 @@
+package se.lu.bos.parser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A reusable view of one row in a byte buffer, parsing the fields straight from the bytes into primitives.
+ *
+ * Used by the {@link MappedLogReader} so that the common rows can be tokenized without creating any Strings,
+ * boxed numbers or substrings. The cursor is reset for every row, nothing it returns is valid after that.
+ */
+public class EventCursor {
+
+    private static final byte[] ATYPE = ascii(" AType:");
+    private static final byte[] ID = ascii(" ID:");
+    private static final byte[] POS = ascii(" POS(");
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    private ByteBuffer buffer;
+    private int start;
+    private int end;
+
+    // Offset just past the last parsed number
+    private int offset;
+
+    // Scratch results of the number parsers, so that they can report success without allocating.
+    private long parsedLong;
+    private float parsedFloat;
+
+    private int tick;
+    private int aType;
+    private int id;
+    private float x;
+    private float y;
+    private float z;
+
+    /**
+     * Points the cursor at the row between start (inclusive) and end (exclusive) and parses tick and AType.
+     *
+     * @return false if the row doesn't start with "T:n AType:n"
+     */
+    public boolean reset(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+        if(end - start < 2 || buffer.get(start) != 'T' || buffer.get(start + 1) != ':') {
+            return false;
+        }
+        if(!parseInt(start + 2)) {
+            return false;
+        }
+        tick = (int) parsedLong;
+        if(!matches(offset, ATYPE) || !parseInt(offset + ATYPE.length)) {
+            return false;
+        }
+        aType = (int) parsedLong;
+        return true;
+    }
+
+    /**
+     * Parses the object ID and position of an AType:17 row.
+     *
+     * T:41069 AType:17 ID:138239 POS(226705.891,3185.417,355836.938)
+     *
+     * @return false if the row doesn't have them
+     */
+    public boolean parsePosition() {
+        int idOffset = find(ID);
+        if(idOffset == -1 || !parseInt(idOffset)) {
+            return false;
+        }
+        id = (int) parsedLong;
+        int posOffset = find(POS);
+        if(posOffset == -1 || !parseFloat(posOffset) || !expect(',')) {
+            return false;
+        }
+        x = parsedFloat;
+        if(!parseFloat(offset) || !expect(',')) {
+            return false;
+        }
+        y = parsedFloat;
+        if(!parseFloat(offset) || !expect(')')) {
+            return false;
+        }
+        z = parsedFloat;
+        return true;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    public int getAType() {
+        return aType;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getZ() {
+        return z;
+    }
+
+    private boolean parseInt(int from) {
+        int i = from;
+        boolean negative = false;
+        if(i < end && buffer.get(i) == '-') {
+            negative = true;
+            i++;
+        }
+        int digitsStart = i;
+        long value = 0;
+        while(i < end) {
+            byte b = buffer.get(i);
+            if(b < '0' || b > '9') {
+                break;
+            }
+            value = value * 10 + (b - '0');
+            i++;
+        }
+        if(i == digitsStart || i - digitsStart > 18) {
+            return false;
+        }
+        parsedLong = negative ? -value : value;
+        offset = i;
+        return true;
+    }
+
+    /**
+     * Parses plain decimal notation, e.g. -226705.891, which is all the simulator ever writes.
+     */
+    private boolean parseFloat(int from) {
+        int i = from;
+        boolean negative = false;
+        if(i < end && buffer.get(i) == '-') {
+            negative = true;
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        while(i < end) {
+            byte b = buffer.get(i);
+            if(b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if(decimals >= 0) {
+                    decimals++;
+                }
+            } else if(b == '.' && decimals == -1) {
+                decimals = 0;
+            } else {
+                break;
+            }
+            i++;
+        }
+        if(digits == 0 || digits > 18) {
+            return false;
+        }
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        parsedFloat = (float) (negative ? -value : value);
+        offset = i;
+        return true;
+    }
+
+    private boolean expect(char c) {
+        if(offset < end && buffer.get(offset) == c) {
+            offset++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the offset just past the key, or -1 if the row doesn't contain it.
+     */
+    private int find(byte[] key) {
+        int last = end - key.length;
+        for(int i = start; i <= last; i++) {
+            if(matches(i, key)) {
+                return i + key.length;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(int at, byte[] key) {
+        if(at + key.length > end) {
+            return false;
+        }
+        for(int k = 0; k < key.length; k++) {
+            if(buffer.get(at + k) != key[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String s) {
+        byte[] bytes = new byte[s.length()];
+        for(int i = 0; i < s.length(); i++) {
+            bytes[i] = (byte) s.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,48 @@
+package se.lu.bos.parser;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of event indexes into a {@link MissionEventStore}, or of row indexes into a {@link PositionTrack},
+ * in log order. The indexes of {@link LogEvents} hand these out read-only, only the tokenizer adds to them.
+ */
+public class EventList {
+
+    static final EventList EMPTY = new EventList(0);
+
+    private int[] events;
+    private int size = 0;
+
+    EventList() {
+        this(4);
+    }
+
+    EventList(int capacity) {
+        this.events = new int[capacity];
+    }
+
+    void add(int event) {
+        if(size == events.length) {
+            events = Arrays.copyOf(events, Math.max(4, size << 1));
+        }
+        events[size++] = event;
+    }
+
+    /**
+     * @return the event index at the given position of the list
+     */
+    public int get(int index) {
+        if(index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return events[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,174 @@
+package se.lu.bos.parser;
+
+import se.lu.bos.model.FlightTrack;
+import se.lu.bos.model.Stats;
+import se.lu.bos.util.TimeUtil;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Follows the chunk files of a mission that is still being played, tokenizing only what the game has appended
+ * since the last poll.
+ *
+ * The session remembers the chunk it is in and the byte offset of the first row not yet read. A row is only
+ * consumed once its line ending has been written, except for the last row of a chunk which is consumed as soon as
+ * the game has moved on to the next chunk. The tokenized events accumulate across polls, which never touches the
+ * files again.
+ *
+ * Most of what is appended while flying are AType:17 positions, which are only added to the flight track the
+ * session keeps. The resolve phases of the {@link Parser} are only re-run over all events when rows they read
+ * have been appended, such as hits, damage, kills and ejections.
+ */
+public class LiveReport {
+
+    private final String folder;
+    private final String rootFileName;
+    private final LogTokenizer tokenizer = new LogTokenizer();
+    private final MappedLogReader reader = new MappedLogReader();
+    private final Parser parser = new Parser();
+
+    private int chunk = 0;
+    private long offset = 0;
+    private byte[] buffer = new byte[64 * 1024];
+
+    // The AType rows the resolve phases read, all others are ignored until the next re-run
+    private static final AType[] RESOLVED_TYPES = {AType.MISSION_START, AType.HIT, AType.DAMAGE, AType.KILL,
+            AType.PLAYER_MISSION_END, AType.PLAYER_PLANE_SPAWN, AType.BOT_EJECT_LEAVE};
+
+    private final FlightTrack track = new FlightTrack();
+
+    private Stats stats;
+    // The number of resolvable events at the last re-run, -1 until the resolve phases first ran
+    private int resolvedEvents = -1;
+    private boolean playerSpawned = false;
+    private long lastPolled;
+
+    public LiveReport(String folder, String rootFileName) {
+        this.folder = folder;
+        this.rootFileName = rootFileName;
+    }
+
+    /**
+     * Reads whatever has been appended since the last poll.
+     *
+     * @return the stats of the mission so far. Not saved and without full log.
+     */
+    public synchronized Stats poll() throws IOException {
+        lastPolled = System.currentTimeMillis();
+        List<File> chunks = ReportDirectoryIndex.probe(folder, Collections.singleton(rootFileName)).getChunkFiles(rootFileName);
+        if(chunks.isEmpty()) {
+            throw new FileNotFoundException("No chunk files of '" + rootFileName + "' in " + folder);
+        }
+        boolean appended = false;
+        while(chunk < chunks.size()) {
+            boolean lastChunk = chunk == chunks.size() - 1;
+            appended |= readAppended(chunks.get(chunk), lastChunk);
+            if(lastChunk) {
+                break;
+            }
+            chunk++;
+            offset = 0;
+        }
+        if(appended || stats == null) {
+            LogEvents events = tokenizer.getEvents();
+            extendTrack(events.getPositions());
+            int resolvable = countResolvable(events);
+            if(events.ofType(AType.PLAYER_PLANE_SPAWN).isEmpty()) {
+                // Nothing is the player's before their AType:10, resolving without a player would take the rows
+                // without attacker, like AI planes crashing, for theirs
+                if(stats == null) {
+                    stats = newStats(chunks);
+                }
+                stats.setTotalDuration(TimeUtil.gameTickToTime(events.getLastTick()));
+            } else if(resolvable != resolvedEvents || !playerSpawned) {
+                // The AType:12 spawn of the player's plane may follow their AType:10 in a later poll
+                stats = parser.buildStatsWithoutTrack(newStats(chunks), events);
+                resolvedEvents = resolvable;
+                playerSpawned = events.getSpawn(stats.getPlayerId()) != null;
+            } else {
+                stats.setTotalDuration(TimeUtil.gameTickToTime(events.getLastTick()));
+            }
+            // Stats handed out earlier may still be serialized while the track grows, so they get a snapshot of it
+            stats.setUnpackedTrack(track.snapshot());
+        }
+        return stats;
+    }
+
+    private Stats newStats(List<File> chunks) {
+        Stats created = new Stats();
+        created.setRootFileName(Parser.cleanRootName(rootFileName));
+        created.setReportFileDate(new Date(chunks.get(0).lastModified()));
+        return created;
+    }
+
+    /**
+     * Adds the positions tokenized since the last poll. As in {@link Parser#buildStatsFromEvents(Stats, LogEvents)}
+     * those are all positions kept, which in a single player log are the player's own.
+     */
+    private void extendTrack(PositionTrack positions) {
+        for(int i = track.size(); i < positions.size(); i++) {
+            track.add(positions.getTick(i), positions.getX(i), positions.getY(i), positions.getZ(i));
+        }
+    }
+
+    private static int countResolvable(LogEvents events) {
+        int count = 0;
+        for(AType type : RESOLVED_TYPES) {
+            count += events.ofType(type).size();
+        }
+        return count;
+    }
+
+    /**
+     * @return true if any rows were read
+     */
+    private boolean readAppended(File file, boolean lastChunk) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long length = raf.length();
+            if(length <= offset) {
+                return false;
+            }
+            if(length - offset > Integer.MAX_VALUE) {
+                throw new IOException("Too much appended to " + file + " at once: " + (length - offset) + " bytes");
+            }
+            int available = (int) (length - offset);
+            if(buffer.length < available) {
+                buffer = new byte[Math.max(available, buffer.length << 1)];
+            }
+            raf.seek(offset);
+            raf.readFully(buffer, 0, available);
+
+            int consumed = available;
+            if(lastChunk) {
+                // The game may be in the middle of writing the last row
+                while(consumed > 0 && buffer[consumed - 1] != '\n') {
+                    consumed--;
+                }
+            }
+            if(consumed == 0) {
+                return false;
+            }
+            reader.read(ByteBuffer.wrap(buffer, 0, consumed), tokenizer);
+            offset += consumed;
+            return true;
+        } finally {
+            raf.close();
+        }
+    }
+
+    public String getRootFileName() {
+        return rootFileName;
+    }
+
+    public long getLastPolled() {
+        return lastPolled;
+    }
+}
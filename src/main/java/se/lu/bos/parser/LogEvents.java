@@ -0,0 +1,206 @@
+package se.lu.bos.parser;
+
+import se.lu.bos.model.DamageShare;
+import se.lu.bos.util.IntObjectMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The tokenized contents of a mission report, indexed by AType, by attacker/target ID and ejections by parent.
+ *
+ * Built in a single pass by the {@link LogTokenizer}. The events themselves are kept in a {@link MissionEventStore},
+ * the indexes are lists of events in log order. The hits on every target are also counted per attacker, for
+ * crediting kills that have no attacker.
+ */
+public class LogEvents {
+
+    private final MissionEventStore store = new MissionEventStore();
+    private final EventList[] byType = new EventList[AType.values().length];
+    private final IntObjectMap<EventList> byAttacker = new IntObjectMap<EventList>();
+    private final IntObjectMap<EventList> byTarget = new IntObjectMap<EventList>();
+    private final IntObjectMap<EventList> ejectionsByParent = new IntObjectMap<EventList>();
+    private final IntObjectMap<TargetHits> hitsByTarget = new IntObjectMap<TargetHits>();
+    private final IntObjectMap<SpawnRecord> spawns = new IntObjectMap<SpawnRecord>();
+    private final PositionTrack positions = new PositionTrack();
+    // Indexes of the rows of the position track, by the ID of the object. Only player planes have an entry, added
+    // as they spawn, the positions of other objects are not kept.
+    private final IntObjectMap<EventList> positionsByObject = new IntObjectMap<EventList>();
+
+    private int lastTick = 0;
+    private int size = 0;
+
+    /**
+     * Adds an event of the store to the indexes.
+     */
+    void index(int event) {
+        append(byType, store.getType(event).ordinal(), event);
+        if(store.getAttackerId(event) != MissionEventStore.NO_ID) {
+            append(byAttacker, store.getAttackerId(event), event);
+        }
+        if(store.getTargetId(event) != MissionEventStore.NO_ID) {
+            append(byTarget, store.getTargetId(event), event);
+        }
+        if(store.getType(event) == AType.HIT) {
+            countHit(store.getAttackerId(event), store.getTargetId(event));
+        } else if(store.getType(event) == AType.PLAYER_PLANE_SPAWN) {
+            positionsByObject.putIfAbsent(store.getObjectId(event), new EventList());
+        } else if(store.getType(event) == AType.BOT_EJECT_LEAVE && store.getParentId(event) != MissionEventStore.NO_ID) {
+            append(ejectionsByParent, store.getParentId(event), event);
+        }
+        lastTick = store.getTick(event);
+        size++;
+    }
+
+    /**
+     * Adds an AType:17 row if it is of a player plane, only those end up in flight tracks. On server logs the rows
+     * of every AI plane and vehicle make up most of the log, so not keeping them keeps the memory of a parse
+     * down to the tracks of the players. Rows of a plane before its AType:10 spawn are not kept either.
+     */
+    void addPosition(int tick, int objectId, float x, float y, float z) {
+        EventList playerPositions = positionsByObject.get(objectId);
+        if(playerPositions == null) {
+            lastTick = tick;
+            return;
+        }
+        playerPositions.add(positions.size());
+        positions.add(tick, objectId, x, y, z);
+        lastTick = tick;
+        size++;
+    }
+
+    /**
+     * Records the tick of a row that isn't kept as an event, so that the last tick still reflects the whole log.
+     */
+    void skip(int tick) {
+        lastTick = tick;
+    }
+
+    private static void append(EventList[] index, int key, int event) {
+        if(index[key] == null) {
+            index[key] = new EventList();
+        }
+        index[key].add(event);
+    }
+
+    private static void append(IntObjectMap<EventList> index, int key, int event) {
+        EventList list = index.get(key);
+        if(list == null) {
+            list = new EventList();
+            index.put(key, list);
+        }
+        list.add(event);
+    }
+
+    // Hits without a (known) attacker are not anyone's share
+    private void countHit(int attackerId, int targetId) {
+        if(attackerId == MissionEventStore.NO_ID || attackerId == -1 || targetId == MissionEventStore.NO_ID) {
+            return;
+        }
+        TargetHits hits = hitsByTarget.get(targetId);
+        if(hits == null) {
+            hits = new TargetHits();
+            hitsByTarget.put(targetId, hits);
+        }
+        hits.add(attackerId);
+    }
+
+    /**
+     * Only the first spawn of an ID is kept, in line with how objects always have been looked up.
+     */
+    void addSpawn(SpawnRecord record) {
+        spawns.putIfAbsent(record.getId(), record);
+    }
+
+    /**
+     * @return the fields of every event, the indexes below refer to events of this store.
+     */
+    public MissionEventStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return the AType:12 record of the given game object ID, or null if it never spawned.
+     */
+    public SpawnRecord getSpawn(int id) {
+        return spawns.get(id);
+    }
+
+    /**
+     * @return the AType:17 position rows of all player planes, in log order. These are not available through
+     * {@link #ofType(AType)}.
+     */
+    public PositionTrack getPositions() {
+        return positions;
+    }
+
+    /**
+     * @return the indexes into {@link #getPositions()} of the AType:17 rows of the given object, in log order.
+     * Never null.
+     */
+    public EventList positionsOf(int objectId) {
+        return nonNull(positionsByObject.get(objectId));
+    }
+
+    /**
+     * @return all events of the given type, in log order. Never null.
+     */
+    public EventList ofType(AType type) {
+        return nonNull(byType[type.ordinal()]);
+    }
+
+    /**
+     * @return all AType:1, 2 and 3 events having the given AID, in log order. Never null.
+     */
+    public EventList byAttacker(int attackerId) {
+        return nonNull(byAttacker.get(attackerId));
+    }
+
+    /**
+     * @return all AType:1, 2 and 3 events having the given TID, in log order. Never null.
+     */
+    public EventList byTarget(int targetId) {
+        return nonNull(byTarget.get(targetId));
+    }
+
+    /**
+     * @return all AType:18 events having the given PARENTID, i.e. the bots leaving that object, in log order.
+     * Never null.
+     */
+    public EventList ejectionsFrom(int parentId) {
+        return nonNull(ejectionsByParent.get(parentId));
+    }
+
+    /**
+     * @return the attacker with the most AType:1 hits on the target, the one reaching that count first on a tie.
+     * {@link MissionEventStore#NO_ID} if no attacker hit it.
+     */
+    public int getTopAttacker(int targetId) {
+        TargetHits hits = hitsByTarget.get(targetId);
+        return hits != null ? hits.getTopAttackerId() : MissionEventStore.NO_ID;
+    }
+
+    /**
+     * @return every attacker's share of the AType:1 hits on the target, e.g. a destroyed object, most hits first.
+     * Empty if no attacker hit it. A new list every call.
+     */
+    public List<DamageShare> getDamageShares(int targetId) {
+        TargetHits hits = hitsByTarget.get(targetId);
+        return hits != null ? hits.toDamageShares() : new ArrayList<DamageShare>();
+    }
+
+    /**
+     * @return the tick of the last row in the log, used for total mission duration.
+     */
+    public int getLastTick() {
+        return lastTick;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static EventList nonNull(EventList list) {
+        return list != null ? list : EventList.EMPTY;
+    }
+}
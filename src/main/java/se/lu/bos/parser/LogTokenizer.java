@@ -0,0 +1,261 @@
+package se.lu.bos.parser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Reads each row of a mission report log exactly once and turns it into an event of the {@link MissionEventStore},
+ * which is added to the per-type and per-ID indexes of {@link LogEvents}.
+ *
+ * Rows that do not start with a tick or have an AType we don't know about are skipped. So are rows of types none
+ * of the resolve phases use, e.g. takeoffs and landings, apart from counting towards the last tick of the log.
+ *
+ * The tokenizer can be fed a complete log or one row at a time, e.g. from a reader over the chunk files, in which
+ * case the text of the log is never held in memory as a whole.
+ */
+public class LogTokenizer {
+
+    private static final Logger log = LoggerFactory.getLogger(LogTokenizer.class);
+
+    private final LogEvents events = new LogEvents();
+    private final MissionEventStore store = events.getStore();
+
+    // The last position parsed by parsePosition
+    private final float[] position = new float[3];
+
+    /**
+     * Tokenizes a complete log. Accepts both \r\n and \n line endings.
+     */
+    public LogEvents tokenize(String logdata) {
+        int start = 0;
+        int length = logdata.length();
+        while(start < length) {
+            int end = logdata.indexOf('\n', start);
+            if(end == -1) {
+                end = length;
+            }
+            int rowEnd = end > start && logdata.charAt(end - 1) == '\r' ? end - 1 : end;
+            if(rowEnd > start) {
+                accept(logdata.substring(start, rowEnd));
+            }
+            start = end + 1;
+        }
+        return events;
+    }
+
+    /**
+     * Tokenizes all rows of the reader. May be called repeatedly, e.g. once per chunk file of a report.
+     */
+    public LogEvents tokenize(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        while(line != null) {
+            if(!line.isEmpty()) {
+                accept(line);
+            }
+            line = reader.readLine();
+        }
+        return events;
+    }
+
+    // T:65095 AType:1 AMMO:SHELL_GER_20x82_AP AID:1865727 TID:822271
+    public void accept(String row) {
+        if(!row.startsWith("T:")) {
+            return;
+        }
+        int aTypeIndex = row.indexOf(" AType:");
+        if(aTypeIndex == -1) {
+            return;
+        }
+        AType type;
+        int tick;
+        try {
+            tick = parseInt(row, 2);
+            type = AType.fromCode(parseInt(row, aTypeIndex + 7));
+        } catch (NumberFormatException e) {
+            log.error("Error parsing time or AType from row: " + row);
+            return;
+        }
+        if(type == null) {
+            return;
+        }
+        if(!isIndexed(type)) {
+            events.skip(tick);
+            return;
+        }
+        if(type == AType.POSITION_CHANGED) {
+            acceptPositionRow(tick, row);
+            return;
+        }
+
+        int event = store.add(tick, type);
+        try {
+            switch(type) {
+                case HIT:
+                    store.setAmmo(event, stringField(row, " AMMO:"));
+                    store.setAttackerId(event, intField(row, " AID:"));
+                    store.setTargetId(event, intField(row, " TID:"));
+                    break;
+                case DAMAGE:
+                    store.setDamage(event, Float.parseFloat(stringField(row, " DMG:")));
+                    store.setAttackerId(event, intField(row, " AID:"));
+                    store.setTargetId(event, intField(row, " TID:"));
+                    break;
+                case KILL:
+                    store.setAttackerId(event, intField(row, " AID:"));
+                    store.setTargetId(event, intField(row, " TID:"));
+                    break;
+                case PLAYER_MISSION_END:
+                case PLAYER_PLANE_SPAWN:
+                    store.setObjectId(event, intField(row, " PLID:"));
+                    store.setParentId(event, intField(row, " PID:"));
+                    break;
+                case GAME_OBJECT_SPAWNED:
+                    SpawnRecord record = SpawnRecord.parse(intField(row, " ID:"), row);
+                    store.setObjectId(event, record.getId());
+                    store.setParentId(event, record.getParentId());
+                    events.addSpawn(record);
+                    break;
+                case BOT_EJECT_LEAVE:
+                    store.setObjectId(event, intField(row, " BOTID:"));
+                    store.setParentId(event, intField(row, " PARENTID:"));
+                    break;
+                default:
+                    break;
+            }
+            if(parsePosition(row)) {
+                store.setPosition(event, position[0], position[1], position[2]);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to tokenize row '" + row + "': " + e.getMessage());
+            store.removeLast();
+            return;
+        }
+        if(keepsRow(type)) {
+            store.setRow(event, row);
+        }
+        events.index(event);
+    }
+
+    // T:41069 AType:17 ID:138239 POS(226705.891,3185.417,355836.938)
+    private void acceptPositionRow(int tick, String row) {
+        try {
+            if(!parsePosition(row)) {
+                log.warn("No position in row '" + row + "'");
+                return;
+            }
+            acceptPosition(tick, intField(row, " ID:"), position[0], position[1], position[2]);
+        } catch (RuntimeException e) {
+            log.warn("Failed to tokenize row '" + row + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds an already parsed AType:17 position row.
+     */
+    public void acceptPosition(int tick, int objectId, float x, float y, float z) {
+        events.addPosition(tick, objectId, x, y, z);
+    }
+
+    public LogEvents getEvents() {
+        return events;
+    }
+
+    private static boolean isIndexed(AType type) {
+        switch(type) {
+            case MISSION_START:
+            case HIT:
+            case DAMAGE:
+            case KILL:
+            case PLAYER_MISSION_END:
+            case PLAYER_PLANE_SPAWN:
+            case GAME_OBJECT_SPAWNED:
+            case POSITION_CHANGED:
+            case BOT_EJECT_LEAVE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Mission and player metadata is still picked out of the raw row by the Parser.
+    private static boolean keepsRow(AType type) {
+        return type == AType.MISSION_START || type == AType.PLAYER_MISSION_END || type == AType.PLAYER_PLANE_SPAWN;
+    }
+
+    /**
+     * Parses the POS(114849.367,512.380,131898.188) of the row into {@link #position}.
+     *
+     * @return false if the row has no position
+     */
+    private boolean parsePosition(String row) {
+        int index = row.indexOf(" POS(");
+        if(index == -1) {
+            return false;
+        }
+        int xStart = index + 5;
+        int yStart = row.indexOf(',', xStart) + 1;
+        int zStart = row.indexOf(',', yStart) + 1;
+        int end = row.indexOf(')', zStart);
+        if(yStart == 0 || zStart == 0 || end == -1) {
+            throw new NumberFormatException("Malformed position in row '" + row + "'");
+        }
+        position[0] = Float.parseFloat(row.substring(xStart, yStart - 1));
+        position[1] = Float.parseFloat(row.substring(yStart, zStart - 1));
+        position[2] = Float.parseFloat(row.substring(zStart, end));
+        return true;
+    }
+
+    /**
+     * @return the value of an integer field such as " AID:", or {@link MissionEventStore#NO_ID} if the row doesn't
+     * have it.
+     */
+    static int intField(String row, String key) {
+        int index = row.indexOf(key);
+        if(index == -1) {
+            return MissionEventStore.NO_ID;
+        }
+        return parseInt(row, index + key.length());
+    }
+
+    /**
+     * @return the value of a field up to the next space, or null if the row doesn't have it.
+     */
+    static String stringField(String row, String key) {
+        int index = row.indexOf(key);
+        if(index == -1) {
+            return null;
+        }
+        int start = index + key.length();
+        int end = row.indexOf(' ', start);
+        return row.substring(start, end == -1 ? row.length() : end);
+    }
+
+    /**
+     * Parses a (possibly negative) integer starting at the given offset without allocating a substring.
+     */
+    static int parseInt(String row, int offset) {
+        int i = offset;
+        boolean negative = false;
+        if(i < row.length() && row.charAt(i) == '-') {
+            negative = true;
+            i++;
+        }
+        int start = i;
+        int value = 0;
+        while(i < row.length()) {
+            char c = row.charAt(i);
+            if(c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            i++;
+        }
+        if(i == start) {
+            throw new NumberFormatException("No digits at offset " + offset + " in '" + row + "'");
+        }
+        return negative ? -value : value;
+    }
+}
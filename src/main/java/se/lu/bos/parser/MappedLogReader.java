@@ -0,0 +1,80 @@
+package se.lu.bos.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Reads mission report chunk files through memory mapped buffers and feeds them to a {@link LogTokenizer}.
+ *
+ * AType:17 position rows, the majority of the rows in any log, are parsed straight from the mapped bytes by a
+ * reusable {@link EventCursor} and handed to the tokenizer as primitives. Only the remaining rows are decoded
+ * into Strings. One reader per thread, the cursor and line buffer are reused between rows.
+ */
+public class MappedLogReader {
+
+    // Same as the FileReader used by the Concatenator
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private final EventCursor cursor = new EventCursor();
+    private byte[] lineBuffer = new byte[512];
+
+    public void read(File file, LogTokenizer tokenizer) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if(size > Integer.MAX_VALUE) {
+                throw new IOException("Log file " + file + " is too large to map: " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            read(buffer, tokenizer);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Tokenizes the rows between the position and limit of the buffer. Accepts both \r\n and \n line endings.
+     */
+    public void read(ByteBuffer buffer, LogTokenizer tokenizer) {
+        int limit = buffer.limit();
+        int start = buffer.position();
+        while(start < limit) {
+            int end = start;
+            while(end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            int rowEnd = end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+            if(rowEnd > start) {
+                acceptRow(buffer, start, rowEnd, tokenizer);
+            }
+            start = end + 1;
+        }
+    }
+
+    private void acceptRow(ByteBuffer buffer, int start, int end, LogTokenizer tokenizer) {
+        if(cursor.reset(buffer, start, end)
+                && cursor.getAType() == AType.POSITION_CHANGED.getCode()
+                && cursor.parsePosition()) {
+            tokenizer.acceptPosition(cursor.getTick(), cursor.getId(), cursor.getX(), cursor.getY(), cursor.getZ());
+        } else {
+            tokenizer.accept(decode(buffer, start, end));
+        }
+    }
+
+    private String decode(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if(lineBuffer.length < length) {
+            lineBuffer = new byte[Math.max(length, lineBuffer.length << 1)];
+        }
+        for(int i = 0; i < length; i++) {
+            lineBuffer[i] = buffer.get(start + i);
+        }
+        return new String(lineBuffer, 0, length, CHARSET);
+    }
+}
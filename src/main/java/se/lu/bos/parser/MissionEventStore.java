@@ -0,0 +1,206 @@
+package se.lu.bos.parser;
+
+import se.lu.bos.model.Term;
+import se.lu.bos.model.Terms;
+import se.lu.bos.util.IntObjectMap;
+
+import java.util.Arrays;
+
+/**
+ * The tokenized rows of a mission report log, one column of growable primitive arrays per field rather than one
+ * object per row. An event is the index of its row in the columns.
+ *
+ * The tokenizer parses the fields the resolve phases of the {@link Parser} care about exactly once,
+ * which ones are populated depends on the {@link AType} of the row:
+ *
+ * T:65095 AType:1 AMMO:SHELL_GER_20x82_AP AID:1865727 TID:822271        - attackerId, targetId, ammo
+ * T:65095 AType:2 DMG:0.030 AID:1865727 TID:822271 POS(...)             - attackerId, targetId, damage
+ * T:70670 AType:3 AID:1865727 TID:822271 POS(...)                       - attackerId, targetId
+ * T:5 AType:10 PLID:287743 PID:288767 ...                               - objectId (PLID), parentId (PID)
+ * T:5 AType:4 PLID:287743 PID:288767 ...                                - objectId (PLID), parentId (PID)
+ * T:10 AType:12 ID:287743 TYPE:Bf 109 G-2 COUNTRY:201 NAME:x PID:-1 ... - objectId, parentId
+ * T:70855 AType:18 BOTID:823295 PARENTID:822271 POS(...)                - objectId (BOTID), parentId
+ *
+ * AType:17 position rows are not stored here at all, they are kept in the {@link PositionTrack} of the log.
+ *
+ * Fields not present on the row are {@link #NO_ID}. Note that -1 is a valid value in the logs, e.g. AID:-1.
+ * Rows having a POS(x,y,z) also get their position parsed. Ammo is stored as the code of its {@link Term}.
+ *
+ * The raw row is only kept for the few types whose remaining fields are picked apart later on (AType:0, 4 and 10),
+ * so that the store doesn't hold on to the text of every row.
+ */
+public class MissionEventStore {
+
+    public static final int NO_ID = Integer.MIN_VALUE;
+
+    private static final AType[] TYPES = AType.values();
+
+    private int[] ticks = new int[256];
+    private short[] types = new short[256];
+    private int[] attackerIds = new int[256];
+    private int[] targetIds = new int[256];
+    private int[] objectIds = new int[256];
+    private int[] parentIds = new int[256];
+    private int[] ammoCodes = new int[256];
+    // NaN when the row has no damage or position
+    private float[] damages = new float[256];
+    private float[] xs = new float[256];
+    private float[] ys = new float[256];
+    private float[] zs = new float[256];
+
+    private final IntObjectMap<String> rows = new IntObjectMap<String>();
+    private int size = 0;
+
+    /**
+     * Appends an event with only its tick and type set.
+     *
+     * @return the new event
+     */
+    int add(int tick, AType type) {
+        if(size == ticks.length) {
+            grow(size << 1);
+        }
+        int event = size++;
+        ticks[event] = tick;
+        types[event] = (short) type.ordinal();
+        attackerIds[event] = NO_ID;
+        targetIds[event] = NO_ID;
+        objectIds[event] = NO_ID;
+        parentIds[event] = NO_ID;
+        ammoCodes[event] = NO_ID;
+        damages[event] = Float.NaN;
+        xs[event] = Float.NaN;
+        return event;
+    }
+
+    /**
+     * Drops the last event, e.g. when the rest of its row turns out to be malformed.
+     */
+    void removeLast() {
+        size--;
+    }
+
+    private void grow(int capacity) {
+        ticks = Arrays.copyOf(ticks, capacity);
+        types = Arrays.copyOf(types, capacity);
+        attackerIds = Arrays.copyOf(attackerIds, capacity);
+        targetIds = Arrays.copyOf(targetIds, capacity);
+        objectIds = Arrays.copyOf(objectIds, capacity);
+        parentIds = Arrays.copyOf(parentIds, capacity);
+        ammoCodes = Arrays.copyOf(ammoCodes, capacity);
+        damages = Arrays.copyOf(damages, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        zs = Arrays.copyOf(zs, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTick(int event) {
+        return ticks[event];
+    }
+
+    public AType getType(int event) {
+        return TYPES[types[event]];
+    }
+
+    /**
+     * @return the raw row of AType:0, 4 and 10 events, null for other types
+     */
+    public String getRow(int event) {
+        return rows.get(event);
+    }
+
+    void setRow(int event, String row) {
+        rows.put(event, row);
+    }
+
+    public int getAttackerId(int event) {
+        return attackerIds[event];
+    }
+
+    void setAttackerId(int event, int attackerId) {
+        attackerIds[event] = attackerId;
+    }
+
+    public int getTargetId(int event) {
+        return targetIds[event];
+    }
+
+    void setTargetId(int event, int targetId) {
+        targetIds[event] = targetId;
+    }
+
+    public int getObjectId(int event) {
+        return objectIds[event];
+    }
+
+    void setObjectId(int event, int objectId) {
+        objectIds[event] = objectId;
+    }
+
+    public int getParentId(int event) {
+        return parentIds[event];
+    }
+
+    void setParentId(int event, int parentId) {
+        parentIds[event] = parentId;
+    }
+
+    public String getAmmo(int event) {
+        return ammoCodes[event] == NO_ID ? null : Terms.name(ammoCodes[event]);
+    }
+
+    void setAmmo(int event, String ammo) {
+        ammoCodes[event] = ammo == null ? NO_ID : Terms.code(Term.Kind.AMMO, ammo);
+    }
+
+    /**
+     * @return the damage of an AType:2 event, null for other types
+     */
+    public Float getDamage(int event) {
+        return Float.isNaN(damages[event]) ? null : damages[event];
+    }
+
+    void setDamage(int event, float damage) {
+        damages[event] = damage;
+    }
+
+    public boolean hasPosition(int event) {
+        return !Float.isNaN(xs[event]);
+    }
+
+    void setPosition(int event, float x, float y, float z) {
+        xs[event] = x;
+        ys[event] = y;
+        zs[event] = z;
+    }
+
+    public float getX(int event) {
+        return xs[event];
+    }
+
+    public float getY(int event) {
+        return ys[event];
+    }
+
+    public float getZ(int event) {
+        return zs[event];
+    }
+
+    /**
+     * @return the event as text, for logging
+     */
+    public String describe(int event) {
+        return "LogEvent{" +
+                "tick=" + ticks[event] +
+                ", type=" + getType(event) +
+                ", attackerId=" + attackerIds[event] +
+                ", targetId=" + targetIds[event] +
+                ", objectId=" + objectIds[event] +
+                ", row='" + getRow(event) + '\'' +
+                '}';
+    }
+}
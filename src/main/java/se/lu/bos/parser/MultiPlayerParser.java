@@ -0,0 +1,109 @@
+package se.lu.bos.parser;
+
+import se.lu.bos.model.Stats;
+import se.lu.bos.util.LogHash;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Builds one Stats per player plane spawned in a mission report, e.g. for the logs of a dedicated server.
+ *
+ * The chunk files are tokenized once. The per-attacker and per-target indexes of {@link LogEvents} already
+ * partition the events by player, so each player's resolve phases only look at their own events and run in
+ * parallel over the shared, from then on read-only, events. Like the streaming mode of the {@link Parser} the
+ * full log is never held in memory. It is hashed from the chunk files instead, and all players' stats share that
+ * hash so the log is stored once for all of them, see {@link #openLog(String, String)}.
+ */
+public class MultiPlayerParser {
+
+    private final Concatenator concatenator;
+    private final Parser parser;
+    private final ExecutorService executor;
+
+    /**
+     * @param index    index of the reports directory, or null to list it when parsing
+     * @param executor runs the per-player resolve phases
+     */
+    public MultiPlayerParser(ReportDirectoryIndex index, ExecutorService executor) {
+        this.concatenator = index != null ? new Concatenator(index) : new Concatenator();
+        this.parser = index != null ? new Parser(index) : new Parser();
+        this.executor = executor;
+    }
+
+    public List<Stats> streamStatsFromRootFileName(String folder, String rootFileName) throws IOException {
+        LogEvents events = concatenator.streamFromBaseFileName(folder, rootFileName, new LogTokenizer());
+        List<Stats> statsList = buildStatsFromEvents(rootFileName, concatenator.getFirstFileDate(folder, rootFileName), events);
+        if(!statsList.isEmpty()) {
+            String logHash;
+            Reader log = openLog(folder, rootFileName);
+            try {
+                logHash = LogHash.sha256(log);
+            } finally {
+                log.close();
+            }
+            for(Stats stats : statsList) {
+                stats.setLogHash(logHash);
+            }
+        }
+        return statsList;
+    }
+
+    /**
+     * @return the full log the stats of a report were built from, read from the chunk files as it is read. Its
+     * hash is the one of the stats, for storing it in the {@link se.lu.bos.dao.LogStore}.
+     */
+    public Reader openLog(String folder, String rootFileName) {
+        return concatenator.openFromBaseFileName(folder, rootFileName);
+    }
+
+    /**
+     * @return one Stats per player, in the order they spawned. Empty if no player spawned.
+     */
+    public List<Stats> buildStatsFromEvents(final String rootFileName, final Date reportFileDate, final LogEvents events) throws IOException {
+        List<Integer> playerIds = Parser.parsePlayerIds(events);
+        // With a single player the log only has that player's positions, just as before
+        final boolean ownTrackOnly = playerIds.size() > 1;
+
+        List<Future<Stats>> futures = new ArrayList<Future<Stats>>(playerIds.size());
+        for(final Integer playerId : playerIds) {
+            futures.add(executor.submit(new Callable<Stats>() {
+                @Override
+                public Stats call() {
+                    Stats stats = new Stats();
+                    stats.setRootFileName(Parser.cleanRootName(rootFileName));
+                    stats.setReportFileDate(reportFileDate);
+                    return parser.buildStatsForPlayer(stats, events, playerId, ownTrackOnly);
+                }
+            }));
+        }
+
+        List<Stats> statsList = new ArrayList<Stats>(futures.size());
+        try {
+            for(Future<Stats> future : futures) {
+                statsList.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing players of '" + rootFileName + "'");
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for(Future<Stats> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return statsList;
+    }
+}
@@ -0,0 +1,59 @@
+package se.lu.bos.parser;
+
+import se.lu.bos.model.GameObject;
+import se.lu.bos.model.Stats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the resolve phases of the {@link Parser} derive while building the stats of one player of a log.
+ *
+ * A context is created for every run and only ever used by the thread doing that run, so the Parser itself keeps
+ * no state between runs. The events are shared and only read.
+ */
+class ParseContext {
+
+    private final Stats stats;
+    private final LogEvents events;
+    private final MissionEventStore store;
+    private final Integer playerId;
+
+    // The game objects hit, killed or hitting the player, by ID
+    private final Map<Integer, GameObject> mappedObjects = new HashMap<Integer, GameObject>();
+
+    private final List<GameObject> allGameObjects = new ArrayList<GameObject>();
+
+    ParseContext(Stats stats, LogEvents events, Integer playerId) {
+        this.stats = stats;
+        this.events = events;
+        this.store = events.getStore();
+        this.playerId = playerId;
+    }
+
+    Stats getStats() {
+        return stats;
+    }
+
+    LogEvents getEvents() {
+        return events;
+    }
+
+    MissionEventStore getStore() {
+        return store;
+    }
+
+    Integer getPlayerId() {
+        return playerId;
+    }
+
+    Map<Integer, GameObject> getMappedObjects() {
+        return mappedObjects;
+    }
+
+    List<GameObject> getAllGameObjects() {
+        return allGameObjects;
+    }
+}
@@ -3,132 +3,204 @@ package se.lu.bos.parser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import se.lu.bos.model.*;
+import se.lu.bos.util.LogHash;
 import se.lu.bos.util.TimeUtil;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.*;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Builds the Stats of a mission report from its log.
+ *
+ * A Parser holds no state of the reports it parses, everything derived while resolving a player goes into a
+ * {@link ParseContext} of its own. One Parser may therefore be shared by all threads parsing reports of the same
+ * reports directory.
+ */
 public class Parser {
 
     private static final Logger log = LoggerFactory.getLogger(Parser.class);
 
+    /**
+     * Bump whenever a change alters what is derived from a log. A rescan only rebuilds the reports stamped with an
+     * older version, reports stored before versions were introduced have none and count as older.
+     *
+     * 1 - reports stored without a version
+     * 2 - tokenized once, numeric ID matching, damage on hits taken, last digit of z kept
+     * 3 - kills without attacker credited by the hits of all attackers, not only the player's
+     * 4 - damage shares of all attackers on destroyed objects
+     */
+    public static final int PARSER_VERSION = 4;
+
     public static final String REPORT_BASE_NAME = "missionReport(2014-11-30_23-38-38)"; //"missionReport(2014-11-30_23-33-34)"; //"missionReport(2014-11-30_17-14-34)";
 
-    private Map<Integer, GameObject> mappedObjects = new HashMap<Integer, GameObject>();
+    private static final Pattern NOT_IN_ROOT_NAME = Pattern.compile("[^a-zA-Z0-9\\s]");
 
+    private final Concatenator concatenator;
 
-    // Patterns
-    private Pattern aType1Pattern = Pattern.compile("(T:?)(\\d+)(.*)(AMMO:?)(\\S+)(.*)(TID:?)(\\d+)");
+    public Parser() {
+        this.concatenator = new Concatenator();
+    }
 
-    private List<GameObject> allGameObjects = new ArrayList<GameObject>();
+    /**
+     * @param index an index of the reports directory, so that the directory isn't listed again for every report.
+     */
+    public Parser(ReportDirectoryIndex index) {
+        this.concatenator = new Concatenator(index);
+    }
 
-    private String clean(String rootName) {
-        return rootName.replaceAll("[^a-zA-Z0-9\\s]", "");
+    /**
+     * @return the root file name as stored on the Stats, e.g. missionReport20141130233838
+     */
+    public static String cleanRootName(String rootName) {
+        return NOT_IN_ROOT_NAME.matcher(rootName).replaceAll("");
     }
 
     public Stats buildStatsFromRootFileName(String folder, String rootFileName) throws IOException {
         Stats stats = new Stats();
-        stats.setRootFileName(clean(rootFileName));
+        stats.setRootFileName(cleanRootName(rootFileName));
         String logdata = readLogFiles(folder, rootFileName);
 
-        stats.setReportFileDate(new Concatenator().getFirstFileDate(folder, rootFileName));
+        stats.setReportFileDate(concatenator.getFirstFileDate(folder, rootFileName));
         stats.setFullLog(logdata);
         return buildStatsFromLogData(stats, logdata);
     }
 
+    /**
+     * Streaming variant of {@link #buildStatsFromRootFileName(String, String)}. The chunk files are tokenized row by
+     * row, so only the indexed events are held in memory and never the text of the full log. The returned Stats
+     * has no full log stored and can therefore not be rebuilt by a rescan.
+     */
+    public Stats streamStatsFromRootFileName(String folder, String rootFileName) throws IOException {
+        Stats stats = new Stats();
+        stats.setRootFileName(cleanRootName(rootFileName));
+        LogEvents events = concatenator.streamFromBaseFileName(folder, rootFileName, new LogTokenizer());
+
+        stats.setReportFileDate(concatenator.getFirstFileDate(folder, rootFileName));
+        return buildStatsFromEvents(stats, events);
+    }
+
     private Stats buildStatsFromLogData(Stats stats, String logdata) {
-        List<String> logRows = toList(logdata);
+        stats.setLogHash(LogHash.sha256(logdata));
+        // Read each row exactly once, all phases below work on the indexed events.
+        return buildStatsFromEvents(stats, new LogTokenizer().tokenize(logdata));
+    }
+
+    /**
+     * Runs all resolve phases over an already tokenized log for the first player spawning in it.
+     */
+    public Stats buildStatsFromEvents(Stats stats, LogEvents events) {
+        return buildStatsForPlayer(stats, events, parsePlayerId(events), false);
+    }
+
+    /**
+     * Runs all resolve phases for one of the players of a log. Only reads the events, so the players of a log may
+     * be resolved at the same time.
+     *
+     * @param ownTrackOnly only add the player's own position rows to the flight track. Logs of single player
+     *                     missions only have position rows of the player, multiplayer logs have those of everyone.
+     */
+    public Stats buildStatsForPlayer(Stats stats, LogEvents events, Integer playerId, boolean ownTrackOnly) {
+        ParseContext ctx = new ParseContext(stats, events, playerId);
+        resolveAllButTrack(ctx);
+        resolveTrack(ctx, ownTrackOnly);
+        logRecordedStats(stats);
+        return stats;
+    }
+
+    /**
+     * Runs all resolve phases but the flight track for the first player spawning in the log, for a {@link LiveReport}
+     * which extends the track it already has with the positions of every poll.
+     */
+    Stats buildStatsWithoutTrack(Stats stats, LogEvents events) {
+        ParseContext ctx = new ParseContext(stats, events, parsePlayerId(events));
+        resolveAllButTrack(ctx);
+        logRecordedStats(stats);
+        return stats;
+    }
 
-        Integer playerId = parsePlayerId(logRows);
+    private void resolveAllButTrack(ParseContext ctx) {
+        Stats stats = ctx.getStats();
+        LogEvents events = ctx.getEvents();
+        Integer playerId = ctx.getPlayerId();
+        stats.setParserVersion(PARSER_VERSION);
         stats.setPlayerId(playerId);
-        mappedObjects.put(playerId, findGameObject(logRows, playerId));
+        // A mission still being played may not have spawned the player's plane yet
+        GameObject player = findGameObject(events, playerId);
+        if(player != null) {
+            ctx.getMappedObjects().put(playerId, player);
+        }
 
 
-        List<String> playerEntries = buildPlayerEntries(playerId, logRows);
+        EventList playerEntries = events.byAttacker(playerId);
 
-        processPlayerEntries(stats, logRows, playerId, playerEntries);
+        processPlayerEntries(ctx, playerEntries);
 
         // After looping over player entries, try to find final state of any objects we've hit:
-        resolveDestroyedObjects(stats, logRows);
-        resolveIndirectlyDestroyedObjects(stats, logRows, playerId);
+        resolveDestroyedObjects(ctx);
+        resolveIndirectlyDestroyedObjects(ctx);
 
-        storeKilledObjectsOnStats(stats, playerId);
+        storeKilledObjectsOnStats(ctx);
+        resolveDamageShares(ctx);
 
         // Find hits that caused damage to us
-        resolveDamageOnPilot(stats, logRows, playerId, playerEntries);
+        resolveDamageOnPilot(ctx);
 
         // Find own fighter, pilot name, starting and final ammo count etc.
-        resolveMetaData(stats, logRows, playerId);
+        resolveMetaData(ctx);
 
         // Build hierarchy of mapped objects
-        buildHierarichalGameObjectGraph();
+        buildHierarichalGameObjectGraph(ctx);
 
 
-        stats.setAssociatedObjects(new ArrayList<GameObject>(mappedObjects.values()));
+        stats.setAssociatedObjects(new ArrayList<GameObject>(ctx.getMappedObjects().values()));
         stats.setCreated(new Date());
-        stats.setTotalDuration(TimeUtil.gameTickToTime(parseTime(logRows.get(logRows.size() - 1))));
-        stats.setFinalState(resolveFinalPlayerObjectState(logRows, playerId));
+        stats.setTotalDuration(TimeUtil.gameTickToTime(events.getLastTick()));
+        stats.setFinalState(resolveFinalPlayerObjectState(events, playerId));
 
         // Leaving this commented out for now.
-        //  findAllGameObjects(logRows);
-        //  stats.setAllGameObjects(allGameObjects);
-
-        logRecordedStats(stats);
+        //  findAllGameObjects(ctx);
+        //  stats.setAllGameObjects(ctx.getAllGameObjects());
 
-        return stats;
+        // The counts are shown before the report is saved, e.g. of a mission still being played
+        stats.updateSummary();
     }
 
     /**
      * Try to find any AType:3 having -1 as AID. Check back for any damage done or hits on this object.
-     * The attacker with the most hits is awarded the kill.
+     * The attacker with the most hits is awarded the kill, see {@link LogEvents#getTopAttacker(int)}.
      *
      * Seems as AID:-1 is used when a damaged plane is destroyed due to crash for example
      *
-     * @param stats
-     * @param logRows
+     * @param ctx
      */
-    private void resolveIndirectlyDestroyedObjects(Stats stats, List<String> logRows, Integer playerId) {
-
-        for(String row : logRows) {
-            if(row.contains("AType:3") && row.contains("AID:-1")) {
-                // Iterate over hits
-                Integer targetId = Integer.parseInt(row.substring(row.indexOf(" TID:") + 5, row.indexOf(" POS(")));
-                Map<Integer, Integer> attackerHitCountMap = new HashMap<Integer, Integer>();
-                for(Hit h : stats.getHits()) {
-                    if(h.getAttackerId() != -1 && h.getTargetId().equals(targetId)) {
-                        if(attackerHitCountMap.containsKey(h.getAttackerId())) {
-                            Integer val = attackerHitCountMap.get(h.getAttackerId());
-                            val += 1;
-                            attackerHitCountMap.put(h.getAttackerId(), val);
-                        } else {
-                            attackerHitCountMap.put(h.getAttackerId(), 1);
-                        }
-                    }
-                }
-
-                Integer highestNumberOfHitsAttackerId = -1;
-                Integer highestHits = 0;
-                // Create kill if if most hits comes from playerId
-                for(Map.Entry<Integer, Integer> entry : attackerHitCountMap.entrySet()) {
-                    if(entry.getValue() > highestHits) {
-                        highestHits = entry.getValue();
-                        highestNumberOfHitsAttackerId = entry.getKey();
-                    }
-                }
-                if(highestNumberOfHitsAttackerId.equals(playerId) && highestHits > 0) {
+    private void resolveIndirectlyDestroyedObjects(ParseContext ctx) {
+
+        Stats stats = ctx.getStats();
+        LogEvents events = ctx.getEvents();
+        MissionEventStore store = ctx.getStore();
+        Integer playerId = ctx.getPlayerId();
+        Map<Integer, GameObject> mappedObjects = ctx.getMappedObjects();
+        EventList kills = events.ofType(AType.KILL);
+        for(int k = 0; k < kills.size(); k++) {
+            int event = kills.get(k);
+            if(store.getAttackerId(event) == -1) {
+                Integer targetId = store.getTargetId(event);
+                // Create kill if most hits comes from playerId
+                if(events.getTopAttacker(targetId) == playerId) {
                     // Construct Kill
 
-                    GameObject gameObject = findGameObject(logRows, targetId);
+                    GameObject gameObject = findGameObject(events, targetId);
                     if(!stats.getKills().contains(gameObject)) {
-                        gameObject.setTimeOfKill(parseTime(row));
-                        FlightPosition fp = parseFlightPosition(row);
+                        gameObject.setTimeOfKill(store.getTick(event));
+                        FlightPosition fp = parseFlightPosition(store, event);
                         if(fp != null) {
                             gameObject.setKilledXPos(fp.getX());
                             gameObject.setKilledZPos(fp.getZ());
                         }
-                        stats.getKills().add(gameObject);
+                        stats.addKill(gameObject);
                     }
                     if(!mappedObjects.containsKey(targetId)) {
                         mappedObjects.put(targetId, gameObject);
@@ -139,37 +211,53 @@ public class Parser {
 
     }
 
-    private State resolveFinalPlayerObjectState(List<String> logRows, Integer playerId) {
-        for(String row : logRows) {
-            if(row.contains(" AType:3 ") && row.contains(" TID:" + playerId + " ")) {
+    /**
+     * Every attacker's share of the hits on each destroyed object, from the hit counts of the whole log rather than
+     * only the player's hits.
+     */
+    private void resolveDamageShares(ParseContext ctx) {
+        LogEvents events = ctx.getEvents();
+        for(GameObject kill : ctx.getStats().getKills()) {
+            List<DamageShare> shares = events.getDamageShares(kill.getGameObjectId());
+            for(DamageShare share : shares) {
+                SpawnRecord attacker = findRootSpawn(events, share.getAttackerId());
+                if(attacker != null) {
+                    share.setAttacker(attacker.getType().trim());
+                }
+            }
+            kill.setDamageShares(shares);
+        }
+    }
+
+    private State resolveFinalPlayerObjectState(LogEvents events, Integer playerId) {
+        EventList playerAsTarget = events.byTarget(playerId);
+        for(int i = 0; i < playerAsTarget.size(); i++) {
+            if(events.getStore().getType(playerAsTarget.get(i)) == AType.KILL) {
                 return State.DESTROYED;
             }
         }
         return State.ALIVE;
     }
 
-    private void buildHierarichalGameObjectGraph() {
+    private void buildHierarichalGameObjectGraph(ParseContext ctx) {
+        Map<Integer, GameObject> mappedObjects = ctx.getMappedObjects();
+        // Every mapped object stays reachable by ID even after it has been moved into its parent's child list
+        Map<Integer, GameObject> objectsById = new HashMap<Integer, GameObject>(mappedObjects);
         Iterator<GameObject> i = mappedObjects.values().iterator();
         while(i.hasNext()) {
             GameObject o = i.next();
 
             if(o.getParentId() != null && o.getParentId() != -1) {
-                 // This object has a parent. Add this object to the
+                // This object has a parent. Add this object to the
                 // parent's child list
-                GameObject parentObject = mappedObjects.get(o.getParentId());
-                if(parentObject != null && !parentObject.getChildren().contains(o)) {
-                    parentObject.getChildren().add(o);
-
-                    // Then remove it from the "main" one.
-                    i.remove();
-                } else {
-                    //  The object may be a child of a child. We need to recurse the current graph
-                    parentObject = findGameObjectRecursively(o.getParentId(), mappedObjects.values());
-                    if(parentObject != null) {
+                GameObject parentObject = objectsById.get(o.getParentId());
+                if(parentObject != null) {
+                    if(!parentObject.getChildren().contains(o)) {
                         parentObject.getChildren().add(o);
-                        i.remove();
                     }
 
+                    // Then remove it from the "main" one.
+                    i.remove();
                 }
             }
         }
@@ -188,114 +276,146 @@ public class Parser {
     }
 
     // T:5 AType:10 PLID:287743 PID:288767 BUL:1200 SH:0 BOMB:0 RCT:0 (188986.344,999.733,138912.453) IDS:a8a19327-93a5-492a-8066-24f32ae0e044 LOGIN:0551fc36-cc61-45ed-9be1-8b393c3abcc7 NAME:Lupson TYPE:Bf 109 G-2 COUNTRY:201 FORM:1 FIELD:0 INAIR:0 PARENT:-1 PAYLOAD:0 FUEL:1.000 SKIN: WM:1
-    private void resolveMetaData(Stats stats, List<String> logRows, Integer playerId) {
-        for(String row : logRows) {
-            if(row.contains(" AType:10 ") && row.contains(" PLID:" + playerId)) {
+    private void resolveMetaData(ParseContext ctx) {
+        Stats stats = ctx.getStats();
+        LogEvents events = ctx.getEvents();
+        MissionEventStore store = ctx.getStore();
+        Integer playerId = ctx.getPlayerId();
+        Map<Integer, GameObject> mappedObjects = ctx.getMappedObjects();
+        EventList planeSpawns = events.ofType(AType.PLAYER_PLANE_SPAWN);
+        for(int i = 0; i < planeSpawns.size(); i++) {
+            int event = planeSpawns.get(i);
+            if(store.getObjectId(event) == playerId) {
+                String row = store.getRow(event);
                 stats.setStartingAmmo(Integer.parseInt(row.substring(row.indexOf("BUL:")+4, row.indexOf(" SH:"))));
 
                 // NAME:Lupson TYPE:Bf 109 G-2
                 stats.setPilotName(row.substring(row.indexOf(" NAME:")+6, row.indexOf(" TYPE:")));
                 stats.setPilotPlane(row.substring(row.indexOf(" TYPE:")+6, row.indexOf(" COUNTRY:")));
-                Float[] pos = parsePos(row);
-                if(pos != null && pos.length == 3) {
-                    mappedObjects.get(playerId).setSpawnedXPos(pos[0]);
-                    mappedObjects.get(playerId).setSpawnedZPos(pos[2]);
+                if(store.hasPosition(event)) {
+                    mappedObjects.get(playerId).setSpawnedXPos(store.getX(event));
+                    mappedObjects.get(playerId).setSpawnedZPos(store.getZ(event));
                 }
             }
+        }
 
-            if(row.contains(" AType:4 ")) {
-                if(row.contains(" PLID:" + playerId)) {
-                    stats.setFinalAmmo(Integer.parseInt(row.substring(row.indexOf("BUL:")+4, row.indexOf(" SH:"))));
-                }
+        EventList missionEnds = events.ofType(AType.PLAYER_MISSION_END);
+        for(int i = 0; i < missionEnds.size(); i++) {
+            int event = missionEnds.get(i);
+            if(store.getObjectId(event) == playerId) {
+                String row = store.getRow(event);
+                stats.setFinalAmmo(Integer.parseInt(row.substring(row.indexOf("BUL:")+4, row.indexOf(" SH:"))));
             }
+        }
 
-            // AType:0 GDate:1942.12.11 GTime:11:45:0 MFile:
-            if(row.contains(" AType:0 GDate:")) {
+        // AType:0 GDate:1942.12.11 GTime:11:45:0 MFile:
+        EventList missionStarts = events.ofType(AType.MISSION_START);
+        for(int i = 0; i < missionStarts.size(); i++) {
+            String row = store.getRow(missionStarts.get(i));
+            if(row.contains(" GDate:")) {
                 stats.setGameDate(row.substring(row.indexOf(" GDate:")+7, row.indexOf(" GTime:")));
                 stats.setGameTime(TimeUtil.pad(row.substring(row.indexOf(" GTime:") + 7, row.indexOf(" MFile:"))));
                 stats.setMissionName(row.substring(row.indexOf(" MFile:") + 7, row.indexOf(" MID:")));
             }
+        }
+
+    }
 
-            if(row.contains(" AType:17 ")) {
-                stats.getFlightTrack().add(parseFlightPosition(row));
+    private void resolveTrack(ParseContext ctx, boolean ownTrackOnly) {
+        LogEvents events = ctx.getEvents();
+        Integer playerId = ctx.getPlayerId();
+        PositionTrack positions = events.getPositions();
+        FlightTrack track;
+        if(ownTrackOnly) {
+            // Only a part of the positions are the player's own in a multiplayer log, which are looked up by ID
+            // rather than walking the rows of every other player
+            EventList own = events.positionsOf(playerId);
+            track = new FlightTrack(own.size());
+            for(int i = 0; i < own.size(); i++) {
+                int row = own.get(i);
+                track.add(positions.getTick(row), positions.getX(row), positions.getY(row), positions.getZ(row));
+            }
+        } else {
+            track = new FlightTrack(positions.size());
+            for(int i = 0; i < positions.size(); i++) {
+                track.add(positions.getTick(i), positions.getX(i), positions.getY(i), positions.getZ(i));
             }
         }
+        ctx.getStats().setTrack(track);
     }
 
-    private void resolveDamageOnPilot(Stats stats, List<String> logRows, Integer playerId, List<String> playerEntries) {
-        List<String> playerAsTargetEntries = buildPlayerAsTargetEntries(playerId, logRows);
-        for(String entry : playerAsTargetEntries) {
-            if(entry.contains("AType:1")) {
+    private void resolveDamageOnPilot(ParseContext ctx) {
+        LogEvents events = ctx.getEvents();
+        MissionEventStore store = ctx.getStore();
+        Integer playerId = ctx.getPlayerId();
+        Map<Integer, GameObject> mappedObjects = ctx.getMappedObjects();
+        EventList playerAsTargetEntries = events.byTarget(playerId);
+        DamageJoin damageJoin = new DamageJoin(store, playerAsTargetEntries);
+        for(int i = 0; i < playerAsTargetEntries.size(); i++) {
+            int entry = playerAsTargetEntries.get(i);
+            if(store.getType(entry) == AType.HIT) {
 
                 // T:65095 AType:1 AMMO:SHELL_GER_20x82_AP AID:1865727 TID:822271
-                Matcher matcher = aType1Pattern.matcher(entry);
-                while (matcher.find()) {
+                Hit hit = new Hit(store.getAmmo(entry), (long) store.getTick(entry), store.getAttackerId(entry), playerId);
+                //hit.setAttacker(mappedObjects.get(playerId));
 
-                    Integer attackerId = Integer.parseInt(entry.substring(entry.indexOf(" AID:")+5, entry.indexOf(" TID:")));
-                    Hit hit = new Hit(matcher.group(5), Long.parseLong(matcher.group(2)), attackerId, playerId);
-                    //hit.setAttacker(mappedObjects.get(playerId));
-
-                    if(!mappedObjects.containsKey(hit.getAttackerId())) {
-                        // Find the Object we were hit by. Store in hashmap.
-                        mappedObjects.put(hit.getAttackerId(), findGameObject(logRows, hit.getAttackerId()));
-                    }
+                if(!mappedObjects.containsKey(hit.getAttackerId())) {
+                    // Find the Object we were hit by. Store in hashmap.
+                    mappedObjects.put(hit.getAttackerId(), findGameObject(events, hit.getAttackerId()));
+                }
 
-                    hit.setAttackerName(mappedObjects.get(hit.getAttackerId()).getName().trim());
-                    if(     mappedObjects.get(hit.getAttackerId()) != null &&
-                            mappedObjects.get(hit.getAttackerId()).getParentId() != null &&
-                            mappedObjects.get(hit.getAttackerId()).getParentId() != -1)
-                    {
-                        hit.setAttacker(findGameObject(logRows, mappedObjects.get(hit.getAttackerId()).getParentId()).getType().trim());
-                    } else {
-                        hit.setAttacker(mappedObjects.get(hit.getAttackerId()).getType().trim());
-                    }
+                hit.setAttackerName(mappedObjects.get(hit.getAttackerId()).getName().trim());
+                if(     mappedObjects.get(hit.getAttackerId()) != null &&
+                        mappedObjects.get(hit.getAttackerId()).getParentId() != null &&
+                        mappedObjects.get(hit.getAttackerId()).getParentId() != -1)
+                {
+                    hit.setAttacker(findGameObject(events, mappedObjects.get(hit.getAttackerId()).getParentId()).getType().trim());
+                } else {
+                    hit.setAttacker(mappedObjects.get(hit.getAttackerId()).getType().trim());
+                }
 
-                    // Find the damage-entry for this hit. Match on timestamp
-                    for(String row : playerEntries) {
-                        if(row.startsWith("T:" + hit.getTime() + " AType:2 DMG:")) {
-                            int startIndex = ("T:" + hit.getTime() + " AType:2 DMG:").length();
-                            hit.setDamage(Float.parseFloat(row.substring(startIndex, row.indexOf(" AID:"))));
-                        }
-                    }
+                // Find the damage-entry for this hit. Match on timestamp, attacker and target
+                hit.setDamage(damageJoin.damageFor(entry));
 
-                    stats.getHitsTaken().add(hit);
-                }
+                ctx.getStats().getHitsTaken().add(hit);
             }
         }
     }
 
-    private void storeKilledObjectsOnStats(Stats stats, Integer playerId) {
-        for(Map.Entry<Integer, GameObject> entry : mappedObjects.entrySet()) {
+    private void storeKilledObjectsOnStats(ParseContext ctx) {
+        Stats stats = ctx.getStats();
+        Integer playerId = ctx.getPlayerId();
+        for(Map.Entry<Integer, GameObject> entry : ctx.getMappedObjects().entrySet()) {
             if(entry.getKey() != -1 && !entry.getValue().getGameObjectId().equals(playerId) && entry.getValue().getState() == State.DESTROYED) {
                 if(!stats.getKills().contains(entry.getValue())) {
-                    stats.getKills().add(entry.getValue());
+                    stats.addKill(entry.getValue());
                 }
             }
         }
     }
 
     // T:70855 AType:18 BOTID:823295 PARENTID:822271
-    private void resolveDestroyedObjects(Stats stats, List<String> logRows) {
+    private void resolveDestroyedObjects(ParseContext ctx) {
+        Stats stats = ctx.getStats();
+        MissionEventStore store = ctx.getStore();
+        Map<Integer, GameObject> mappedObjects = ctx.getMappedObjects();
+        LogEvents events = ctx.getEvents();
         for(Hit h : stats.getHits()) {
            if(h.getTargetId() != -1 && mappedObjects.get(h.getTargetId()).getState() != State.DESTROYED) {
-                for(String row : logRows) {
-                    if(row.contains("AType:18")) {
-
-                        if(row.contains("AType:18") && row.contains("PARENTID:" + h.getTargetId())) {
-                           mappedObjects.get(h.getTargetId()).setState(State.DESTROYED);
-                            mappedObjects.get(h.getTargetId()).setTimeOfKill(parseTime(row));
-
-                            Integer botId = Integer.parseInt(row.substring(row.indexOf("BOTID:") + 6, row.indexOf(" PARENTID:")));
-                           if(mappedObjects.containsKey(botId)) {
-                                mappedObjects.get(botId).setState(State.DESTROYED);
-                                mappedObjects.get(botId).setTimeOfKill(parseTime(row));
-                                FlightPosition fp = parseFlightPosition(row);
-                                if(fp != null) {
-                                    mappedObjects.get(botId).setKilledXPos(fp.getX());
-                                    mappedObjects.get(botId).setKilledZPos(fp.getZ());
-                                }
-                            }
-
+                EventList ejections = events.ejectionsFrom(h.getTargetId());
+                for(int i = 0; i < ejections.size(); i++) {
+                    int row = ejections.get(i);
+                    mappedObjects.get(h.getTargetId()).setState(State.DESTROYED);
+                    stats.updateTimeOfKill(mappedObjects.get(h.getTargetId()), store.getTick(row));
+
+                    Integer botId = store.getObjectId(row);
+                    if(mappedObjects.containsKey(botId)) {
+                        mappedObjects.get(botId).setState(State.DESTROYED);
+                        stats.updateTimeOfKill(mappedObjects.get(botId), store.getTick(row));
+                        FlightPosition fp = parseFlightPosition(store, row);
+                        if(fp != null) {
+                            mappedObjects.get(botId).setKilledXPos(fp.getX());
+                            mappedObjects.get(botId).setKilledZPos(fp.getZ());
                         }
                     }
                 }
@@ -303,56 +423,51 @@ public class Parser {
         }
     }
 
-    private void processPlayerEntries(Stats stats, List<String> logRows, Integer playerId, List<String> playerEntries) {
-        for(String entry : playerEntries) {
-            if(entry.contains("AType:1")) {
+    private void processPlayerEntries(ParseContext ctx, EventList playerEntries) {
+        Stats stats = ctx.getStats();
+        LogEvents events = ctx.getEvents();
+        MissionEventStore store = ctx.getStore();
+        Integer playerId = ctx.getPlayerId();
+        Map<Integer, GameObject> mappedObjects = ctx.getMappedObjects();
+        DamageJoin damageJoin = new DamageJoin(store, playerEntries);
+        for(int i = 0; i < playerEntries.size(); i++) {
+            int entry = playerEntries.get(i);
+            if(store.getType(entry) == AType.HIT) {
                 // T:65095 AType:1 AMMO:SHELL_GER_20x82_AP AID:1865727 TID:822271
+                Hit hit = new Hit(store.getAmmo(entry), (long) store.getTick(entry), playerId, store.getTargetId(entry));
+                //hit.setAttacker(mappedObjects.get(playerId));
 
-                Matcher matcher = aType1Pattern.matcher(entry);
-                while (matcher.find()) {
-
-                    Hit hit = new Hit(matcher.group(5), Long.parseLong(matcher.group(2)), playerId, Integer.parseInt(matcher.group(8)));
-                    //hit.setAttacker(mappedObjects.get(playerId));
-
-                    if(!mappedObjects.containsKey(hit.getTargetId())) {
-                        // Find the Object we've hit. Store in hashmap.
-                        mappedObjects.put(hit.getTargetId(), findGameObject(logRows, hit.getTargetId()));
-                    }
+                if(!mappedObjects.containsKey(hit.getTargetId())) {
+                    // Find the Object we've hit. Store in hashmap.
+                    mappedObjects.put(hit.getTargetId(), findGameObject(events, hit.getTargetId()));
+                }
 
-                    GameObject rootGameObject = findRootGameObject(logRows, hit.getTargetId());
-                    hit.setTarget(rootGameObject.getType().trim());
+                GameObject rootGameObject = findRootGameObject(events, hit.getTargetId());
+                hit.setTarget(rootGameObject.getType().trim());
 
-                    String targetName = mappedObjects.get(hit.getTargetId()).getName().trim();
-                    if(!targetName.equals("noname")) {
-                        hit.setName(targetName);
-                    } else {
-                        hit.setName(hit.getTarget());
-                    }
+                String targetName = mappedObjects.get(hit.getTargetId()).getName().trim();
+                if(!targetName.equals("noname")) {
+                    hit.setName(targetName);
+                } else {
+                    hit.setName(hit.getTarget());
+                }
 
-                    // Find the damage-entry for this hit. Match on timestamp
-                    for(String row : playerEntries) {
-                        if(row.startsWith("T:" + hit.getTime() + " AType:2 DMG:")) {
-                            int startIndex = ("T:" + hit.getTime() + " AType:2 DMG:").length();
-                            hit.setDamage(Float.parseFloat(row.substring(startIndex, row.indexOf(" AID:"))));
+                // Find the damage-entry for this hit. Match on timestamp, attacker and target
+                hit.setDamage(damageJoin.damageFor(entry));
 
-                        }
-                    }
-
-                    stats.getHits().add(hit);
-                }
-            } else if(entry.contains("AType:3")) {
+                stats.addHit(hit);
+            } else if(store.getType(entry) == AType.KILL) {
                 // T:70670 AType:3 AID:1865727 TID:822271 POS(114849.367,512.380,131898.188)
-                Integer targetId = Integer.parseInt(entry.substring(entry.indexOf(" TID:") + 5, entry.indexOf(" POS(")));
-                GameObject gameObject = findGameObject(logRows, targetId);
+                Integer targetId = store.getTargetId(entry);
+                GameObject gameObject = findGameObject(events, targetId);
                 if(!stats.getKills().contains(gameObject)) {
-                    gameObject.setTimeOfKill(parseTime(entry));
-                    Float[] pos = parsePos(entry);
-                    if(pos != null && pos.length == 3) {
-                        gameObject.setKilledXPos(pos[0]);
-                        gameObject.setKilledZPos(pos[2]);
+                    gameObject.setTimeOfKill(store.getTick(entry));
+                    if(store.hasPosition(entry)) {
+                        gameObject.setKilledXPos(store.getX(entry));
+                        gameObject.setKilledZPos(store.getZ(entry));
                     }
 
-                    stats.getKills().add(gameObject);
+                    stats.addKill(gameObject);
                 }
                 if(!mappedObjects.containsKey(targetId)) {
                     mappedObjects.put(targetId, gameObject);
@@ -361,163 +476,93 @@ public class Parser {
         }
     }
 
-    // T:41069 AType:17 ID:138239 POS(226705.891,3185.417,355836.938)
-    private FlightPosition parseFlightPosition(String row) {
-        try {
-            FlightPosition fp = new FlightPosition();
-            fp.setMissionTime(parseTime(row));
-            Float[] pos = parsePos(row);
-            fp.setX(pos[0]);
-            fp.setY(pos[1]);
-            fp.setZ(pos[2]);
-            return fp;
-        } catch (Exception e) {
-            log.warn("Failed to parse position from row '" + row + "', returning null");
-            return null;
-        }
-    }
-
-    private Float[] parsePos(String row) {
-        if(!row.contains(" POS(")) {
+    private FlightPosition parseFlightPosition(MissionEventStore store, int event) {
+        if(!store.hasPosition(event)) {
+            log.warn("No position on event " + store.describe(event) + ", returning null");
             return null;
         }
-        String posData = row.substring(row.indexOf(" POS(")+5, row.lastIndexOf(")")-1);
-        String[] parts = posData.split(",");
-        Float[] res = new Float[3];
-        res[0] = Float.parseFloat(parts[0]);
-        res[1] = Float.parseFloat(parts[1]);
-        res[2] = Float.parseFloat(parts[2]);
-        return res;
-    }
-
-    private GameObject findRootGameObject(List<String> logRows, Integer targetId) {
-        GameObject gameObject = findGameObject(logRows, targetId);
-        if(gameObject.getParentId() != null && gameObject.getParentId() != -1 && !gameObject.getParentId().equals(targetId)) {
-            return findRootGameObject(logRows, gameObject.getParentId());
-        } else {
-            return gameObject;
-        }
-    }
-
-
-    private GameObject findGameObjectRecursively(Integer idToFind, Collection<GameObject> values) {
-        for(GameObject o : values) {
-            if(o.getGameObjectId().equals(idToFind)) {
-                return o;
-            } else {
-                GameObject go = findGameObjectRecursively(idToFind, o.getChildren());
-                if(go != null) {
-                    return go;
-                }
-            }
-        }
-        return null;
-    }
-
-    private void findAllGameObjects(List<String> logRows) {
-        for(String row : logRows) {
-            if(row.contains("AType:12")) {
-                Integer id = parseId(row);
-                allGameObjects.add(buildGameObject(id, row));
-            }
-        }
+        FlightPosition fp = new FlightPosition();
+        fp.setMissionTime(store.getTick(event));
+        fp.setX(store.getX(event));
+        fp.setY(store.getY(event));
+        fp.setZ(store.getZ(event));
+        return fp;
     }
 
-    private Integer parseId(String row) {
-        return Integer.parseInt(row.substring(row.indexOf(" ID:")+4, row.indexOf(" TYPE:")));
-    }
-
-
-    private GameObject findGameObject(List<String> logRows, Integer id) {
-        for(String row : logRows) {
-            if(row.contains("AType:12")) {
-
-                if(row.contains("AType:12") && row.contains(" ID:" + id)) {
-                    return buildGameObject(id, row);
-                }
-            }
+    /**
+     * Follows the PID chain of the spawn records up to the root object, e.g. gunner -> turret -> plane.
+     */
+    private GameObject findRootGameObject(LogEvents events, Integer targetId) {
+        SpawnRecord record = events.getSpawn(targetId);
+        while(record.getParentId() != -1 && record.getParentId() != record.getId()) {
+            record = events.getSpawn(record.getParentId());
         }
-        return null;
+        return record.toGameObject();
     }
 
-    private GameObject buildGameObject(Integer id, String row) {
-        String type = row.substring(row.indexOf("TYPE:")+5, row.indexOf("COUNTRY:"));
-        String name = row.substring(row.indexOf("NAME:")+5, row.indexOf("PID:"));
-        String parentId = row.substring(row.indexOf(" PID:")+5).split(" ")[0];
-        Integer countryCode = Integer.parseInt(row.substring(row.indexOf(" COUNTRY:") + 9, row.indexOf(" NAME:")));
-        return new GameObject(id, name, type, parentId.equals("-1") ? GameObjectType.VEHICLE : GameObjectType.PILOT, Integer.parseInt(parentId), countryFromCode(countryCode));
-    }
-
-    private String countryFromCode(Integer countryCode) {
-        switch(countryCode) {
-            case 101:
-                return "USSR";
-            case 201:
-                return "Germany";
-            default:
-                return "Unknown";
-        }
-    }
 
-    private List<String> buildPlayerEntries(Integer playerId, List<String> logRows) {
-        List<String> pList = new ArrayList<String>();
-        for(String row : logRows) {
-            if(row.contains("AID:"+playerId)) {
-                pList.add(row);
-            }
+    /**
+     * Like {@link #findRootGameObject(LogEvents, Integer)}, but null rather than failing if a spawn is missing.
+     */
+    private SpawnRecord findRootSpawn(LogEvents events, int id) {
+        SpawnRecord record = events.getSpawn(id);
+        while(record != null && record.getParentId() != -1 && record.getParentId() != record.getId()) {
+            record = events.getSpawn(record.getParentId());
         }
-        return pList;
+        return record;
     }
 
-    private List<String> buildPlayerAsTargetEntries(Integer playerId, List<String> logRows) {
-        List<String> pList = new ArrayList<String>();
-        for(String row : logRows) {
-            if(row.contains("TID:"+playerId)) {
-                pList.add(row);
-            }
+    private void findAllGameObjects(ParseContext ctx) {
+        LogEvents events = ctx.getEvents();
+        EventList spawns = events.ofType(AType.GAME_OBJECT_SPAWNED);
+        for(int i = 0; i < spawns.size(); i++) {
+            ctx.getAllGameObjects().add(events.getSpawn(events.getStore().getObjectId(spawns.get(i))).toGameObject());
         }
-        return pList;
     }
 
-    private List<String> toList(String logdata) {
-        return Arrays.asList(logdata.split("\r\n"));
+    private GameObject findGameObject(LogEvents events, Integer id) {
+        SpawnRecord record = events.getSpawn(id);
+        return record != null ? record.toGameObject() : null;
     }
 
-    private Integer parsePlayerId(List<String> rows) {
-        for(String row : rows) {
-            if(row.contains("AType:10 PLID:")) {
-                return parsePlayerIdUsingRegExp(row);
-            }
+    private Integer parsePlayerId(LogEvents events) {
+        EventList spawns = events.ofType(AType.PLAYER_PLANE_SPAWN);
+        if(spawns.isEmpty()) {
+            return -1;
         }
-        return -1;
+        return events.getStore().getObjectId(spawns.get(0));
     }
 
-    private Integer parsePlayerIdUsingRegExp(String row) {
-        Pattern pattern = Pattern.compile("(PLID:?)(\\d+)(.*)");
-        Matcher matcher = pattern.matcher(row);
-
-        while (matcher.find()) {
-            return Integer.parseInt(matcher.group(2).trim());
+    /**
+     * @return the PLID of every player plane spawned in the log, in the order they spawned.
+     */
+    static List<Integer> parsePlayerIds(LogEvents events) {
+        Set<Integer> playerIds = new LinkedHashSet<Integer>();
+        EventList spawns = events.ofType(AType.PLAYER_PLANE_SPAWN);
+        for(int i = 0; i < spawns.size(); i++) {
+            playerIds.add(events.getStore().getObjectId(spawns.get(i)));
         }
-        return  -1;
+        return new ArrayList<Integer>(playerIds);
     }
 
     private String readLogFiles(String directory, String rootFileName) throws IOException {
-        return new Concatenator().buildFromBaseFileName(directory, rootFileName);
-    }
-
-    // T - tick, it is 1/50 of second
-    private Integer parseTime(String row) {
-        try {
-            return Integer.parseInt(row.substring(2, row.indexOf(" AType:")));
-        } catch (Exception e) {
-            log.error("Error parsing time from row: " + row);
-            log.error("Message: " + e.getMessage());
-            return 0;
-        }
+        return concatenator.buildFromBaseFileName(directory, rootFileName);
     }
 
     public Stats rebuildFromStoredLog(Stats s, String fullLog) {
         return buildStatsFromLogData(s, fullLog);
     }
+
+    /**
+     * Rebuilds a report from its log as read from the log store, tokenizing it row by row as it is decompressed.
+     * The log hash of the report is kept as it is. The log of a multiplayer mission is shared by the reports of all
+     * its players, each is rebuilt for the player it was stored for, see {@link MultiPlayerParser}.
+     */
+    public Stats rebuildFromStoredLog(Stats s, Reader fullLog) throws IOException {
+        LogEvents events = new LogTokenizer().tokenize(new BufferedReader(fullLog));
+        if(s.getPlayerId() != null && parsePlayerIds(events).size() > 1) {
+            return buildStatsForPlayer(s, events, s.getPlayerId(), true);
+        }
+        return buildStatsFromEvents(s, events);
+    }
 }
@@ -0,0 +1,62 @@
+package se.lu.bos.parser;
+
+import java.util.Arrays;
+
+/**
+ * The AType:17 position rows of the player planes of a log, kept in growable primitive arrays rather than one
+ * object per row.
+ *
+ * T:41069 AType:17 ID:138239 POS(226705.891,3185.417,355836.938)
+ *
+ * Position rows make up the bulk of most logs, this keeps them at 20 bytes each.
+ */
+public class PositionTrack {
+
+    private int[] ticks = new int[256];
+    private int[] objectIds = new int[256];
+    private float[] xs = new float[256];
+    private float[] ys = new float[256];
+    private float[] zs = new float[256];
+    private int size = 0;
+
+    void add(int tick, int objectId, float x, float y, float z) {
+        if(size == ticks.length) {
+            int capacity = size << 1;
+            ticks = Arrays.copyOf(ticks, capacity);
+            objectIds = Arrays.copyOf(objectIds, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+        }
+        ticks[size] = tick;
+        objectIds[size] = objectId;
+        xs[size] = x;
+        ys[size] = y;
+        zs[size] = z;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTick(int index) {
+        return ticks[index];
+    }
+
+    public int getObjectId(int index) {
+        return objectIds[index];
+    }
+
+    public float getX(int index) {
+        return xs[index];
+    }
+
+    public float getY(int index) {
+        return ys[index];
+    }
+
+    public float getZ(int index) {
+        return zs[index];
+    }
+}
@@ -0,0 +1,164 @@
+package se.lu.bos.parser;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * The chunk files of a reports directory grouped by report, built from a single listing of the directory.
+ *
+ * The game writes each mission report as missionReport(2014-11-30_23-38-38)[0].txt, [1].txt, ... The chunks of a
+ * report are ordered by that numeric suffix, so [10] comes after [9] and the order doesn't depend on file
+ * timestamps, which are lost when logs are copied between machines. Files not following the pattern are ignored.
+ *
+ * An index is a snapshot, build a new one for every scan of the directory.
+ */
+public class ReportDirectoryIndex {
+
+    private final File folder;
+    private final Map<String, List<Chunk>> chunksByRootName = new HashMap<String, List<Chunk>>();
+
+    private ReportDirectoryIndex(File folder) {
+        this.folder = folder;
+    }
+
+    public static ReportDirectoryIndex scan(String folder) {
+        ReportDirectoryIndex index = new ReportDirectoryIndex(new File(folder));
+        File[] files = index.folder.listFiles();
+        if(files != null) {
+            for(File f : files) {
+                index.add(f);
+            }
+        }
+        for(List<Chunk> chunks : index.chunksByRootName.values()) {
+            Collections.sort(chunks);
+        }
+        return index;
+    }
+
+    /**
+     * Builds an index of just the given reports by looking up [0].txt, [1].txt, ... of each until one is missing,
+     * without listing the directory.
+     */
+    public static ReportDirectoryIndex probe(String folder, Collection<String> rootNames) {
+        ReportDirectoryIndex index = new ReportDirectoryIndex(new File(folder));
+        for(String rootName : rootNames) {
+            List<Chunk> chunks = new ArrayList<Chunk>();
+            File f = new File(index.folder, rootName + "[0].txt");
+            while(f.isFile()) {
+                chunks.add(new Chunk(chunks.size(), f));
+                f = new File(index.folder, rootName + "[" + chunks.size() + "].txt");
+            }
+            if(!chunks.isEmpty()) {
+                index.chunksByRootName.put(rootName, chunks);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the root name of a chunk file name, e.g. missionReport(2014-11-30_23-38-38) for
+     * missionReport(2014-11-30_23-38-38)[12].txt, or null if the name isn't one of a chunk file.
+     */
+    public static String parseRootName(String fileName) {
+        return chunkNumber(fileName) == -1 ? null : fileName.substring(0, fileName.lastIndexOf('['));
+    }
+
+    // missionReport(2014-11-30_23-38-38)[12].txt
+    private void add(File f) {
+        String name = f.getName();
+        int number = chunkNumber(name);
+        if(number == -1) {
+            return;
+        }
+        String rootName = name.substring(0, name.lastIndexOf('['));
+        List<Chunk> chunks = chunksByRootName.get(rootName);
+        if(chunks == null) {
+            chunks = new ArrayList<Chunk>();
+            chunksByRootName.put(rootName, chunks);
+        }
+        chunks.add(new Chunk(number, f));
+    }
+
+    /**
+     * @return n of a name ending with [n].txt, or -1 if the name doesn't.
+     */
+    private static int chunkNumber(String name) {
+        if(!name.endsWith("].txt")) {
+            return -1;
+        }
+        int open = name.lastIndexOf('[');
+        int close = name.length() - 5;
+        if(open <= 0 || open + 1 == close) {
+            return -1;
+        }
+        int number = 0;
+        for(int i = open + 1; i < close; i++) {
+            char c = name.charAt(i);
+            if(c < '0' || c > '9' || number > (Integer.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    public File getFolder() {
+        return folder;
+    }
+
+    /**
+     * @return the root names of all reports that have their first, [0], chunk in the directory. Sorted by name,
+     * which for missionReport(yyyy-MM-dd_HH-mm-ss) is the order they were played in.
+     */
+    public List<String> getReportNames() {
+        List<String> names = new ArrayList<String>();
+        for(Map.Entry<String, List<Chunk>> entry : chunksByRootName.entrySet()) {
+            if(entry.getValue().get(0).number == 0) {
+                names.add(entry.getKey());
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * @return the chunk files of the report ordered by their [n] suffix, empty if there are none.
+     */
+    public List<File> getChunkFiles(String rootName) {
+        List<Chunk> chunks = chunksByRootName.get(rootName);
+        if(chunks == null) {
+            return Collections.emptyList();
+        }
+        List<File> files = new ArrayList<File>(chunks.size());
+        for(Chunk chunk : chunks) {
+            files.add(chunk.file);
+        }
+        return files;
+    }
+
+    /**
+     * @return the last modified date of the first chunk of the report, or null if there are no chunks.
+     */
+    public Date getFirstFileDate(String rootName) {
+        List<Chunk> chunks = chunksByRootName.get(rootName);
+        if(chunks == null) {
+            return null;
+        }
+        return new Date(chunks.get(0).file.lastModified());
+    }
+
+    private static class Chunk implements Comparable<Chunk> {
+        private final int number;
+        private final File file;
+
+        private Chunk(int number, File file) {
+            this.number = number;
+            this.file = file;
+        }
+
+        @Override
+        public int compareTo(Chunk o) {
+            return number < o.number ? -1 : (number == o.number ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package se.lu.bos.parser;
+
+import se.lu.bos.model.GameObject;
+import se.lu.bos.model.GameObjectType;
+
+/**
+ * The parsed contents of an AType:12 row, e.g.
+ *
+ * T:10 AType:12 ID:287743 TYPE:Bf 109 G-2 COUNTRY:201 NAME:noname PID:-1 POS(188986.344,999.733,138912.453)
+ *
+ * Immutable, so the same record can be shared by every lookup. Each call to {@link #toGameObject()} returns a
+ * fresh GameObject since the resolve phases of the {@link Parser} mutate state, time of kill etc. on those.
+ */
+public class SpawnRecord {
+
+    private final int id;
+    private final String type;
+    private final String name;
+    private final int parentId;
+    private final int countryCode;
+
+    public SpawnRecord(int id, String type, String name, int parentId, int countryCode) {
+        this.id = id;
+        this.type = type;
+        this.name = name;
+        this.parentId = parentId;
+        this.countryCode = countryCode;
+    }
+
+    static SpawnRecord parse(int id, String row) {
+        String type = row.substring(row.indexOf("TYPE:")+5, row.indexOf("COUNTRY:"));
+        String name = row.substring(row.indexOf("NAME:")+5, row.indexOf("PID:"));
+        int parentId = LogTokenizer.intField(row, " PID:");
+        int countryCode = LogTokenizer.intField(row, " COUNTRY:");
+        return new SpawnRecord(id, type, name, parentId, countryCode);
+    }
+
+    public GameObject toGameObject() {
+        return new GameObject(id, name, type, parentId == -1 ? GameObjectType.VEHICLE : GameObjectType.PILOT, parentId, countryFromCode(countryCode));
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getParentId() {
+        return parentId;
+    }
+
+    public int getCountryCode() {
+        return countryCode;
+    }
+
+    static String countryFromCode(int countryCode) {
+        switch(countryCode) {
+            case 101:
+                return "USSR";
+            case 201:
+                return "Germany";
+            default:
+                return "Unknown";
+        }
+    }
+}
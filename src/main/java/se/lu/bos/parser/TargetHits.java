@@ -0,0 +1,87 @@
+package se.lu.bos.parser;
+
+import se.lu.bos.model.DamageShare;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The number of AType:1 hits each attacker has landed on one target, counted by {@link LogEvents} as the log is
+ * tokenized.
+ *
+ * The attacker with the most hits is kept up to date on every hit, so finding who is credited with a kill
+ * never looks at the hits again. A target is only ever hit by a handful of attackers, which are looked up in
+ * plain arrays.
+ */
+class TargetHits {
+
+    private int[] attackerIds = new int[2];
+    private int[] hits = new int[2];
+    // The running hit count on the target when each attacker reached their current count, to break ties
+    private int[] reachedAt = new int[2];
+    private int size = 0;
+    private int totalHits = 0;
+
+    // Index of the attacker with the most hits, the first to reach the count on a tie. -1 until the first hit.
+    private int top = -1;
+
+    void add(int attackerId) {
+        int i = indexOf(attackerId);
+        if(i == -1) {
+            if(size == attackerIds.length) {
+                attackerIds = Arrays.copyOf(attackerIds, size << 1);
+                hits = Arrays.copyOf(hits, size << 1);
+                reachedAt = Arrays.copyOf(reachedAt, size << 1);
+            }
+            i = size++;
+            attackerIds[i] = attackerId;
+        }
+        hits[i]++;
+        totalHits++;
+        reachedAt[i] = totalHits;
+        if(top == -1 || hits[i] > hits[top]) {
+            top = i;
+        }
+    }
+
+    private int indexOf(int attackerId) {
+        for(int i = 0; i < size; i++) {
+            if(attackerIds[i] == attackerId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    int getTopAttackerId() {
+        return attackerIds[top];
+    }
+
+    /**
+     * @return the share of every attacker, most hits first. Attackers with as many hits are listed in the order they
+     * reached that count, like {@link #getTopAttackerId()}, so the first share is always the credited attacker.
+     */
+    List<DamageShare> toDamageShares() {
+        List<Integer> order = new ArrayList<Integer>(size);
+        for(int i = 0; i < size; i++) {
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if(hits[a] != hits[b]) {
+                    return Integer.compare(hits[b], hits[a]);
+                }
+                return Integer.compare(reachedAt[a], reachedAt[b]);
+            }
+        });
+        List<DamageShare> shares = new ArrayList<DamageShare>(size);
+        for(Integer i : order) {
+            shares.add(new DamageShare(attackerIds[i], hits[i], (float) hits[i] / totalHits));
+        }
+        return shares;
+    }
+}
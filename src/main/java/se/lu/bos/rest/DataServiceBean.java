@@ -9,24 +9,32 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import rx.Observable;
 import rx.functions.Action1;
 import rx.functions.Func1;
 import rx.observables.GroupedObservable;
+import se.lu.bos.dao.CareerDao;
 import se.lu.bos.dao.StatsDao;
+import se.lu.bos.model.FlightPosition;
+import se.lu.bos.model.FlightTrack;
 import se.lu.bos.model.GameObject;
 import se.lu.bos.model.Hit;
 import se.lu.bos.model.State;
 import se.lu.bos.model.Stats;
+import se.lu.bos.rest.dto.ReportSummary;
+import se.lu.bos.rest.dto.RescanProgress;
 import se.lu.bos.rest.dto.TinyReport;
+import se.lu.bos.rest.dto.TinyReportPage;
 import se.lu.bos.rest.dto.TotalReport;
+import se.lu.bos.scanner.LiveReportService;
 import se.lu.bos.scanner.ReportFileScanner;
 import se.lu.bos.scanner.ReportFileScannerBean;
 import se.lu.bos.util.TimeUtil;
 
-import java.util.Collections;
-import java.util.Comparator;
+import java.io.IOException;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -45,22 +53,33 @@ public class DataServiceBean {
     @Autowired
     StatsDao statsDao;
 
+    @Autowired
+    CareerDao careerDao;
+
     @Autowired
     ReportFileScanner reportFileScanner;
 
+    @Autowired
+    LiveReportService liveReportService;
+
+    @Autowired
+    FlightTrackService flightTrackService;
+
     @Autowired
     Environment env;
 
-    private static Comparator<? super TinyReport> tinyReportComparator = new Comparator<TinyReport>() {
-        @Override
-        public int compare(TinyReport o1, TinyReport o2) {
-            return o2.getCreated().compareTo(o1.getCreated());
-        }
-    };
+    private static final int MAX_PAGE_SIZE = 500;
 
+    /**
+     * The metadata of all reports. Their hits, kills, game objects and flight tracks are only included with
+     * ?full=true, which reads every one of them and can make for a very large response.
+     */
     @RequestMapping(method = RequestMethod.GET, value = "/reports", produces = "application/json")
-    public ResponseEntity<List<Stats>> getAll() {
-        return new ResponseEntity(statsDao.getAll(), HttpStatus.OK);
+    public ResponseEntity<List<?>> getAll(@RequestParam(value = "full", required = false, defaultValue = "false") boolean full) {
+        if(full) {
+            return new ResponseEntity(statsDao.getAll(), HttpStatus.OK);
+        }
+        return new ResponseEntity(statsDao.getSummaries(), HttpStatus.OK);
     }
 //
 //    @RequestMapping(method = RequestMethod.GET, value = "/total", produces = "application/json")
@@ -119,10 +138,22 @@ public class DataServiceBean {
 //        return new ResponseEntity(totalReport, HttpStatus.OK);
 //    }
 
+    /**
+     * The career totals as kept up to date while reports are saved, no reports are read.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/total", produces = "application/json")
+    public ResponseEntity<TotalReport> getTotal() {
+        return new ResponseEntity(careerDao.getTotalReport(), HttpStatus.OK);
+    }
+
+    /**
+     * The career totals computed from all stored reports, one pass over them. Single threaded since the reports
+     * load their kills and hits lazily from the persistence context of this request.
+     */
     @RequestMapping(method = RequestMethod.GET, value = "/totalrx", produces = "application/json")
     public ResponseEntity<TotalReport> getTotalRx() {
         List<Stats> reports = statsDao.getAll();
-        TotalReport totalReport = buildAggregateReportUsingRx(reports);
+        TotalReport totalReport = TotalReportAccumulator.aggregate(reports);
         return new ResponseEntity(totalReport, HttpStatus.OK);
     }
 
@@ -335,12 +366,51 @@ public class DataServiceBean {
     }
 
 
+    /**
+     * One page of the report list, newest first. The next cursor of a page is passed as ?after= to get the following
+     * page. Optionally only the reports flown in ?plane=, and from ?from= up to but not including ?to=, both given as
+     * yyyy-MM-dd.
+     */
     @RequestMapping(method = RequestMethod.GET, value = "/tinyreports", produces = "application/json")
-    public ResponseEntity<List<TinyReport>> getAllTiny() {
-
-        List<TinyReport> reports = statsDao.getTinyReports();
-        Collections.sort(reports, tinyReportComparator);
-        return new ResponseEntity(reports, HttpStatus.OK);
+    public ResponseEntity<TinyReportPage> getAllTiny(@RequestParam(value = "after", required = false) String after,
+                                                     @RequestParam(value = "plane", required = false) String plane,
+                                                     @RequestParam(value = "from", required = false) String from,
+                                                     @RequestParam(value = "to", required = false) String to,
+                                                     @RequestParam(value = "limit", required = false, defaultValue = "100") int limit) {
+        Date beforeDate = null;
+        Long beforeId = null;
+        Date fromDate = null;
+        Date toDate = null;
+        try {
+            // <report file date in millis>_<id>
+            if(after != null) {
+                int separator = after.indexOf('_');
+                if(separator == -1) {
+                    throw new IllegalArgumentException("No separator in cursor " + after);
+                }
+                beforeDate = new Date(Long.parseLong(after.substring(0, separator)));
+                beforeId = Long.parseLong(after.substring(separator + 1));
+            }
+            if(from != null) {
+                fromDate = TimeUtil.parseDay(from);
+            }
+            if(to != null) {
+                toDate = TimeUtil.parseDay(to);
+            }
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        TinyReportPage page = new TinyReportPage();
+        page.setReports(statsDao.getTinyReports(beforeDate, beforeId, plane, fromDate, toDate, pageSize));
+        if(page.getReports().size() == pageSize) {
+            TinyReport last = page.getReports().get(pageSize - 1);
+            if(last.getReportFileDate() != null) {
+                page.setNext(last.getReportFileDate().getTime() + "_" + last.getId());
+            }
+        }
+        return new ResponseEntity(page, HttpStatus.OK);
     }
 
     @RequestMapping(method = RequestMethod.GET, value = "/reports/{id}", produces = "application/json")
@@ -348,6 +418,46 @@ public class DataServiceBean {
         return new ResponseEntity(statsDao.findById(id), HttpStatus.OK);
     }
 
+    @RequestMapping(method = RequestMethod.GET, value = "/reports/{id}/summary", produces = "application/json")
+    public ResponseEntity<ReportSummary> findSummary(@PathVariable Long id) {
+        ReportSummary summary = statsDao.findSummary(id);
+        if(summary == null) {
+            return new ResponseEntity(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity(summary, HttpStatus.OK);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/reports/{id}/hits", produces = "application/json")
+    public ResponseEntity<List<Hit>> findHits(@PathVariable Long id) {
+        return new ResponseEntity(statsDao.findHits(id), HttpStatus.OK);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/reports/{id}/hitsTaken", produces = "application/json")
+    public ResponseEntity<List<Hit>> findHitsTaken(@PathVariable Long id) {
+        return new ResponseEntity(statsDao.findHitsTaken(id), HttpStatus.OK);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/reports/{id}/kills", produces = "application/json")
+    public ResponseEntity<List<GameObject>> findKills(@PathVariable Long id) {
+        return new ResponseEntity(statsDao.findKills(id), HttpStatus.OK);
+    }
+
+    /**
+     * The flight track of a report simplified for the scale it is drawn at, e.g. /reports/4/track?tolerance=20 leaves
+     * out positions within 20 metres of the simplified track and /reports/4/track?maxPositions=500 returns at most
+     * 500 positions. Without either the full track is returned.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/reports/{id}/track", produces = "application/json")
+    public ResponseEntity<List<FlightPosition>> getFlightTrack(@PathVariable Long id,
+                                                               @RequestParam(value = "tolerance", required = false) Float tolerance,
+                                                               @RequestParam(value = "maxPositions", required = false) Integer maxPositions) {
+        FlightTrack track = flightTrackService.getTrack(id, tolerance, maxPositions);
+        if(track == null) {
+            return new ResponseEntity(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity(track.toPositions(), HttpStatus.OK);
+    }
+
     @RequestMapping(method = RequestMethod.POST, value = "/reports", produces = "application/json")
     public ResponseEntity<Stats> scanForReports() {
         int scannedReports = reportFileScanner.scan();
@@ -366,6 +476,40 @@ public class DataServiceBean {
         return new ResponseEntity("Rescanned " + scannedReports + " mission reports from " + env.getProperty("reports.directory", ReportFileScannerBean.DEFAULT_SCAN_FOLDER), HttpStatus.OK);
     }
 
+    @RequestMapping(method = RequestMethod.POST, value = "/rescan", produces = "application/json")
+    public ResponseEntity<RescanProgress> startRescan(@RequestParam(value = "all", required = false, defaultValue = "false") boolean all) {
+        return new ResponseEntity(reportFileScanner.startRescan(all), HttpStatus.OK);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/rescan", produces = "application/json")
+    public ResponseEntity<RescanProgress> getRescanProgress() {
+        return new ResponseEntity(reportFileScanner.getRescanProgress(), HttpStatus.OK);
+    }
+
+    @RequestMapping(method = RequestMethod.DELETE, value = "/rescan", produces = "application/json")
+    public ResponseEntity<RescanProgress> cancelRescan() {
+        return new ResponseEntity(reportFileScanner.cancelRescan(), HttpStatus.OK);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/live", produces = "application/json")
+    public ResponseEntity<List<String>> getLiveSessions() {
+        return new ResponseEntity(liveReportService.getSessions(), HttpStatus.OK);
+    }
+
+    /**
+     * Debrief of a mission still being played, e.g. /live/missionReport(2014-11-30_23-38-38). Only what the game has
+     * written since the previous request is read.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/live/{rootFileName}", produces = "application/json")
+    public ResponseEntity<Stats> getLiveReport(@PathVariable String rootFileName) {
+        try {
+            return new ResponseEntity(liveReportService.poll(rootFileName), HttpStatus.OK);
+        } catch (IOException e) {
+            log.error("Exception occured reading live report '" + rootFileName + "': " + e.getMessage());
+            return new ResponseEntity(HttpStatus.NOT_FOUND);
+        }
+    }
+
     // Spring setter, also for unit testing
     public void setStatsDao(StatsDao statsDao) {
         this.statsDao = statsDao;
@@ -0,0 +1,102 @@
+package se.lu.bos.rest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import se.lu.bos.dao.StatsDao;
+import se.lu.bos.model.FlightTrack;
+import se.lu.bos.util.TrackSimplifier;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serves flight tracks simplified for the scale they are drawn at.
+ *
+ * The tracks of the track.lodCacheSize most recently viewed reports are kept decoded together with their
+ * {@link TrackSimplifier#rank(FlightTrack) ranks}, so every further level of detail of the same track only takes
+ * a pass over its positions. A cached track is only served while the report has not been rebuilt since, e.g. by a
+ * rescan, which is checked against the report's created date on every request.
+ */
+@Service
+public class FlightTrackService {
+
+    @Autowired
+    private StatsDao statsDao;
+
+    @Autowired
+    private Environment env;
+
+    private Map<Long, RankedTrack> cache;
+
+    @PostConstruct
+    public void init() {
+        final int cacheSize = Math.max(1, env.getProperty("track.lodCacheSize", Integer.class, 50));
+        this.cache = new LinkedHashMap<Long, RankedTrack>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RankedTrack> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * @param tolerance leave out positions closer than this many metres to the simplified track, may be null
+     * @param maxPositions return at most this many positions, may be null
+     * @return the track simplified by whichever of tolerance and maxPositions leaves the fewest positions, the full
+     * track if neither is given. Null if there's no such report.
+     */
+    public FlightTrack getTrack(Long reportId, Float tolerance, Integer maxPositions) {
+        RankedTrack ranked = getRankedTrack(reportId);
+        if(ranked == null) {
+            return null;
+        }
+        FlightTrack track = ranked.track;
+        if(tolerance != null) {
+            track = TrackSimplifier.simplify(ranked.track, ranked.ranks, tolerance);
+        }
+        if(maxPositions != null && track.size() > maxPositions) {
+            track = TrackSimplifier.simplify(ranked.track, ranked.ranks, maxPositions.intValue());
+        }
+        return track;
+    }
+
+    private RankedTrack getRankedTrack(Long reportId) {
+        // Read ahead of the track, so a track is never cached as newer than it is
+        Date created = statsDao.findCreated(reportId);
+        synchronized(cache) {
+            RankedTrack ranked = cache.get(reportId);
+            if(ranked != null && created != null && created.getTime() == ranked.created.getTime()) {
+                return ranked;
+            }
+            cache.remove(reportId);
+        }
+        FlightTrack track = statsDao.findFlightTrack(reportId);
+        if(track == null) {
+            return null;
+        }
+        RankedTrack ranked = new RankedTrack(track, TrackSimplifier.rank(track), created);
+        // Reports without a track may not have been migrated yet
+        if(track.size() > 0 && created != null) {
+            synchronized(cache) {
+                cache.put(reportId, ranked);
+            }
+        }
+        return ranked;
+    }
+
+    private static class RankedTrack {
+        private final FlightTrack track;
+        private final float[] ranks;
+        // Of the report the track was read from
+        private final Date created;
+
+        RankedTrack(FlightTrack track, float[] ranks, Date created) {
+            this.track = track;
+            this.ranks = ranks;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package se.lu.bos.rest;
+
+import se.lu.bos.model.GameObject;
+import se.lu.bos.model.Hit;
+import se.lu.bos.model.State;
+import se.lu.bos.model.Stats;
+import se.lu.bos.model.Terms;
+import se.lu.bos.rest.dto.TotalReport;
+import se.lu.bos.util.TimeUtil;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes every field of a {@link TotalReport} in a single pass over the reports, each report's kills and hits
+ * are only fetched once. Accumulators of different parts of the reports can be merged, which is how
+ * {@link #aggregateParallel(List)} spreads the work over the cores.
+ *
+ * Counts the same way as {@link DataServiceBean#buildAggregateReportUsingRx(List)}: kills only count root objects,
+ * e.g. not turrets or crew, while hits count every hit. Target and ammo types are counted by the codes of their
+ * {@link se.lu.bos.model.Term}s and only named in the resulting report.
+ */
+public class TotalReportAccumulator {
+
+    // Below this many reports a fork join task adds them up itself rather than splitting them further
+    private static final int SPLIT_THRESHOLD = 256;
+
+    private int missions;
+    private long missionsSurvived;
+    private long missionsDestroyed;
+    private int flightTimeSeconds;
+    private int kills;
+    private int hits;
+    private final Map<Integer, Long> killsByTargetType = new HashMap<Integer, Long>();
+    private final Map<Integer, Long> hitsByAmmoType = new HashMap<Integer, Long>();
+    private final Map<Object, Long> sortiesPerPlaneType = new HashMap<Object, Long>();
+    private final Map<String, Long> killsInPlaneType = new HashMap<String, Long>();
+
+    public static TotalReport aggregate(List<Stats> reports) {
+        TotalReportAccumulator accumulator = new TotalReportAccumulator();
+        for(Stats stats : reports) {
+            accumulator.add(stats);
+        }
+        return accumulator.toTotalReport();
+    }
+
+    /**
+     * Splits the reports over the common fork join pool. The reports must not be lazily loaded from a persistence
+     * context, which can't be used by more than one thread.
+     */
+    public static TotalReport aggregateParallel(List<Stats> reports) {
+        return ForkJoinPool.commonPool().invoke(new AccumulateTask(reports, 0, reports.size())).toTotalReport();
+    }
+
+    public void add(Stats stats) {
+        missions++;
+        if(stats.getFinalState() == State.ALIVE) {
+            missionsSurvived++;
+        } else if(stats.getFinalState() == State.DESTROYED) {
+            missionsDestroyed++;
+        }
+        flightTimeSeconds += TimeUtil.toSeconds(stats.getTotalDuration());
+        increment(sortiesPerPlaneType, stats.getPilotPlane(), 1);
+
+        int rootKills = 0;
+        for(GameObject kill : stats.getKills()) {
+            if(kill.getParentId() == -1) {
+                rootKills++;
+                increment(killsByTargetType, kill.getTypeCode(), 1);
+            }
+        }
+        kills += rootKills;
+        increment(killsInPlaneType, stats.getPilotPlane(), rootKills);
+
+        List<Hit> reportHits = stats.getHits();
+        for(Hit hit : reportHits) {
+            increment(hitsByAmmoType, hit.getAmmoCode(), 1);
+        }
+        hits += reportHits.size();
+    }
+
+    public TotalReportAccumulator merge(TotalReportAccumulator other) {
+        missions += other.missions;
+        missionsSurvived += other.missionsSurvived;
+        missionsDestroyed += other.missionsDestroyed;
+        flightTimeSeconds += other.flightTimeSeconds;
+        kills += other.kills;
+        hits += other.hits;
+        mergeCounts(killsByTargetType, other.killsByTargetType);
+        mergeCounts(hitsByAmmoType, other.hitsByAmmoType);
+        mergeCounts(sortiesPerPlaneType, other.sortiesPerPlaneType);
+        mergeCounts(killsInPlaneType, other.killsInPlaneType);
+        return this;
+    }
+
+    public TotalReport toTotalReport() {
+        TotalReport totalReport = new TotalReport();
+        totalReport.setMissions(missions);
+        totalReport.setMissionsSurvived(missionsSurvived);
+        totalReport.setMissionsDestroyed(missionsDestroyed);
+        totalReport.setTotalFlightTimeSeconds(flightTimeSeconds);
+        totalReport.setTotalFlightTime(TimeUtil.fromSeconds(flightTimeSeconds));
+        totalReport.setKills(kills);
+        totalReport.setHits(hits);
+        putNamed(totalReport.getKillsByTargetType(), killsByTargetType);
+        putNamed(totalReport.getHitsByAmmoType(), hitsByAmmoType);
+        totalReport.getSortiesPerPlaneType().putAll(sortiesPerPlaneType);
+        totalReport.getKillsInPlaneType().putAll(killsInPlaneType);
+        return totalReport;
+    }
+
+    private static <K> void increment(Map<K, Long> counts, K key, long amount) {
+        Long count = counts.get(key);
+        counts.put(key, count == null ? amount : count + amount);
+    }
+
+    private static void putNamed(Map<Object, Long> named, Map<Integer, Long> byCode) {
+        for(Map.Entry<Integer, Long> entry : byCode.entrySet()) {
+            named.put(Terms.name(entry.getKey()), entry.getValue());
+        }
+    }
+
+    private static <K> void mergeCounts(Map<K, Long> counts, Map<K, Long> other) {
+        for(Map.Entry<K, Long> entry : other.entrySet()) {
+            increment(counts, entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static class AccumulateTask extends RecursiveTask<TotalReportAccumulator> {
+        private final List<Stats> reports;
+        private final int from;
+        private final int to;
+
+        AccumulateTask(List<Stats> reports, int from, int to) {
+            this.reports = reports;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TotalReportAccumulator compute() {
+            if(to - from <= SPLIT_THRESHOLD) {
+                TotalReportAccumulator accumulator = new TotalReportAccumulator();
+                for(int i = from; i < to; i++) {
+                    accumulator.add(reports.get(i));
+                }
+                return accumulator;
+            }
+            int middle = (from + to) >>> 1;
+            AccumulateTask left = new AccumulateTask(reports, from, middle);
+            left.fork();
+            TotalReportAccumulator right = new AccumulateTask(reports, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package se.lu.bos.rest.dto;
+
+import se.lu.bos.model.State;
+
+import java.util.Date;
+
+/**
+ * The metadata of a report without any of its hits, kills, game objects or flight track. Read with a single
+ * constructor query, see {@link se.lu.bos.dao.StatsDao#getSummaries()}.
+ */
+public class ReportSummary {
+    private Long id;
+    private String rootFileName;
+    private String missionName;
+    private String gameDate;
+    private String gameTime;
+    private String totalDuration;
+    private Date reportFileDate;
+    private String pilotName;
+    private String pilotPlane;
+    private Integer playerId;
+    private State finalState;
+    private Integer startingAmmo;
+    private Integer finalAmmo;
+    private Integer parserVersion;
+
+    public ReportSummary(Long id,
+                         String rootFileName,
+                         String missionName,
+                         String gameDate,
+                         String gameTime,
+                         String totalDuration,
+                         Date reportFileDate,
+                         String pilotName,
+                         String pilotPlane,
+                         Integer playerId,
+                         State finalState,
+                         Integer startingAmmo,
+                         Integer finalAmmo,
+                         Integer parserVersion) {
+        this.id = id;
+        this.rootFileName = rootFileName;
+        this.missionName = missionName;
+        this.gameDate = gameDate;
+        this.gameTime = gameTime;
+        this.totalDuration = totalDuration;
+        this.reportFileDate = reportFileDate;
+        this.pilotName = pilotName;
+        this.pilotPlane = pilotPlane;
+        this.playerId = playerId;
+        this.finalState = finalState;
+        this.startingAmmo = startingAmmo;
+        this.finalAmmo = finalAmmo;
+        this.parserVersion = parserVersion;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRootFileName() {
+        return rootFileName;
+    }
+
+    public String getMissionName() {
+        return missionName;
+    }
+
+    public String getGameDate() {
+        return gameDate;
+    }
+
+    public String getGameTime() {
+        return gameTime;
+    }
+
+    public String getTotalDuration() {
+        return totalDuration;
+    }
+
+    public Date getReportFileDate() {
+        return reportFileDate;
+    }
+
+    public String getPilotName() {
+        return pilotName;
+    }
+
+    public String getPilotPlane() {
+        return pilotPlane;
+    }
+
+    public Integer getPlayerId() {
+        return playerId;
+    }
+
+    public State getFinalState() {
+        return finalState;
+    }
+
+    public Integer getStartingAmmo() {
+        return startingAmmo;
+    }
+
+    public Integer getFinalAmmo() {
+        return finalAmmo;
+    }
+
+    public Integer getParserVersion() {
+        return parserVersion;
+    }
+}
@@ -0,0 +1,52 @@
+package se.lu.bos.rest.dto;
+
+/**
+ * Snapshot of the progress of a rescan of the stored reports.
+ */
+public class RescanProgress {
+    private boolean running;
+    private boolean cancelled;
+    private long total;
+    private int rebuilt;
+    private int failed;
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public int getRebuilt() {
+        return rebuilt;
+    }
+
+    public void setRebuilt(int rebuilt) {
+        this.rebuilt = rebuilt;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+}
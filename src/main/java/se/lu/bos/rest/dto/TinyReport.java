@@ -1,5 +1,9 @@
 package se.lu.bos.rest.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Date;
+
 /**
  * Created with IntelliJ IDEA.
  * User: Erik
@@ -13,6 +17,9 @@ public class TinyReport {
     private String pilotPlane;
     private String created;
 
+    @JsonIgnore
+    private Date reportFileDate;
+
     public Long getId() {
         return id;
     }
@@ -43,6 +50,14 @@ public class TinyReport {
         this.created = created;
     }
 
+    public Date getReportFileDate() {
+        return reportFileDate;
+    }
+
+    public void setReportFileDate(Date reportFileDate) {
+        this.reportFileDate = reportFileDate;
+    }
+
     public String getPilotPlane() {
         return pilotPlane;
     }
@@ -0,0 +1,27 @@
+package se.lu.bos.rest.dto;
+
+import java.util.List;
+
+/**
+ * A page of the report list, next is the cursor to pass as ?after= for the following page and null on the last page.
+ */
+public class TinyReportPage {
+    private List<TinyReport> reports;
+    private String next;
+
+    public List<TinyReport> getReports() {
+        return reports;
+    }
+
+    public void setReports(List<TinyReport> reports) {
+        this.reports = reports;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
@@ -0,0 +1,119 @@
+package se.lu.bos.scanner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.lu.bos.dao.StatsDao;
+import se.lu.bos.model.Stats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs parse tasks on a bounded pool and saves their stats in batches from the thread that submits them, so there
+ * is only ever one writer. Used once, by one thread: submit all tasks and then call {@link #finish()}.
+ */
+class BatchedIngestion {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchedIngestion.class);
+
+    private final CompletionService<List<Stats>> completed;
+    private final StatsDao statsDao;
+    private final int maxInFlight;
+    private final int batchSize;
+
+    private final List<Stats> batch;
+    private int inFlight = 0;
+    private volatile int saved = 0;
+    private volatile int failed = 0;
+
+    /**
+     * @param pool       should run rejected tasks on the caller, a worker whose task has just completed may not yet
+     *                   have taken the next one off the queue
+     * @param queueDepth the capacity of the pool's queue. No more tasks are put in flight than the pool and its
+     *                   queue can hold, which bounds the reports held in memory.
+     */
+    BatchedIngestion(ThreadPoolExecutor pool, int queueDepth, int batchSize, StatsDao statsDao) {
+        this.completed = new ExecutorCompletionService<List<Stats>>(pool);
+        this.maxInFlight = pool.getMaximumPoolSize() + queueDepth;
+        this.batchSize = batchSize;
+        this.statsDao = statsDao;
+        this.batch = new ArrayList<Stats>(batchSize);
+    }
+
+    /**
+     * Submits a task, first waiting for and saving completed ones while the pool is full.
+     */
+    void submit(Callable<List<Stats>> task) {
+        while(inFlight >= maxInFlight) {
+            collect();
+        }
+        completed.submit(task);
+        inFlight++;
+    }
+
+    /**
+     * Waits for all submitted tasks and saves what is left.
+     *
+     * @return the number of stats saved
+     */
+    int finish() {
+        while(inFlight > 0) {
+            collect();
+        }
+        saveBatch();
+        return saved;
+    }
+
+    int getSaved() {
+        return saved;
+    }
+
+    int getFailed() {
+        return failed;
+    }
+
+    private void collect() {
+        try {
+            inFlight--;
+            for(Stats stats : completed.take().get()) {
+                log.info("Built new stats object: " + stats.toString());
+                batch.add(stats);
+            }
+        } catch (ExecutionException e) {
+            log.error(e.getCause().getMessage());
+            failed++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parsed reports", e);
+        }
+        if(batch.size() >= batchSize) {
+            saveBatch();
+        }
+    }
+
+    private void saveBatch() {
+        if(batch.isEmpty()) {
+            return;
+        }
+        try {
+            for(Stats stats : statsDao.saveAll(batch)) {
+                log.info("Saved with ID: " + stats.getId());
+                saved++;
+            }
+        } catch (RuntimeException e) {
+            // Don't let one broken report take the rest of the batch with it
+            log.error("Saving batch of " + batch.size() + " reports failed, saving them one by one: " + e.getMessage());
+            for(Stats stats : batch) {
+                try {
+                    log.info("Saved with ID: " + statsDao.save(stats).getId());
+                    saved++;
+                } catch (RuntimeException e1) {
+                    log.error("Exception occured saving root file '" + stats.getRootFileName() + "': " + e1.getMessage());
+                    failed++;
+                }
+            }
+        }
+        batch.clear();
+    }
+}
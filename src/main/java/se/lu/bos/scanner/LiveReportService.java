@@ -0,0 +1,86 @@
+package se.lu.bos.scanner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import se.lu.bos.dao.TermDaoBean;
+import se.lu.bos.model.Stats;
+import se.lu.bos.parser.LiveReport;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one {@link LiveReport} per mission that is being watched while it is played, so that everyone following
+ * the same mission shares the tailing state. Sessions nobody has polled for reports.live.idleTimeoutMs are dropped.
+ */
+@Service
+@DependsOn(TermDaoBean.NAME)
+public class LiveReportService {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveReportService.class);
+
+    @Autowired
+    private Environment env;
+
+    private String reportsFolder;
+    private long idleTimeoutMs;
+
+    private final ConcurrentMap<String, LiveReport> sessions = new ConcurrentHashMap<String, LiveReport>();
+
+    @PostConstruct
+    public void init() {
+        this.reportsFolder = env.getProperty("reports.directory", ReportFileScannerBean.DEFAULT_SCAN_FOLDER);
+        this.idleTimeoutMs = env.getProperty("reports.live.idleTimeoutMs", Long.class, 600000L);
+    }
+
+    /**
+     * Starts following the mission if nobody did already and returns its stats so far.
+     */
+    public Stats poll(String rootFileName) throws IOException {
+        evictIdle();
+        LiveReport session = sessions.get(rootFileName);
+        if(session == null) {
+            LiveReport created = new LiveReport(reportsFolder, rootFileName);
+            session = sessions.putIfAbsent(rootFileName, created);
+            if(session == null) {
+                log.info("Started live session for '" + rootFileName + "'");
+                session = created;
+            }
+        }
+        try {
+            return session.poll();
+        } catch (IOException e) {
+            sessions.remove(rootFileName, session);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the root file names of all missions currently followed
+     */
+    public List<String> getSessions() {
+        evictIdle();
+        return new ArrayList<String>(sessions.keySet());
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<LiveReport> i = sessions.values().iterator();
+        while(i.hasNext()) {
+            LiveReport session = i.next();
+            if(session.getLastPolled() > 0 && now - session.getLastPolled() > idleTimeoutMs) {
+                log.info("Dropped idle live session for '" + session.getRootFileName() + "'");
+                i.remove();
+            }
+        }
+    }
+}
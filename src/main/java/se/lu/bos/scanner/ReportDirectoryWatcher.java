@@ -0,0 +1,180 @@
+package se.lu.bos.scanner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import se.lu.bos.dao.TermDaoBean;
+import se.lu.bos.parser.ReportDirectoryIndex;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the reports directory and ingests new reports as the game writes them, instead of rescanning the
+ * whole directory. Enabled with reports.watch = true.
+ *
+ * The game writes a report as a series of missionReport(...)[n].txt chunks while the mission runs. Every created
+ * or modified chunk marks its report as pending, a pending report is ingested once none of its chunks have changed
+ * for reports.watch.debounceMs and its last chunk holds the mission end row (AType:7). Reports that never get a
+ * mission end row, e.g. because the game crashed, are ingested after reports.watch.idleTimeoutMs without changes.
+ *
+ * Only the changed file names are looked at, the directory itself is only listed by the catch-up scan at startup
+ * and when the watch service reports that it has lost events.
+ */
+@Component
+@DependsOn(TermDaoBean.NAME)
+public class ReportDirectoryWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportDirectoryWatcher.class);
+
+    @Autowired
+    private Environment env;
+
+    @Autowired
+    private ReportFileScanner reportFileScanner;
+
+    private File reportsFolder;
+    private long debounceMs;
+    private long idleTimeoutMs;
+
+    private WatchService watchService;
+    private Thread watcherThread;
+    private volatile boolean running;
+
+    // Root name of each pending report and when one of its chunks last changed, only used by the watcher thread
+    private final Map<String, Long> lastChanged = new HashMap<String, Long>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if(!env.getProperty("reports.watch", Boolean.class, false)) {
+            return;
+        }
+        this.reportsFolder = new File(env.getProperty("reports.directory", ReportFileScannerBean.DEFAULT_SCAN_FOLDER));
+        this.debounceMs = env.getProperty("reports.watch.debounceMs", Long.class, 3000L);
+        this.idleTimeoutMs = env.getProperty("reports.watch.idleTimeoutMs", Long.class, 600000L);
+
+        watchService = FileSystems.getDefault().newWatchService();
+        reportsFolder.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        running = true;
+        watcherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "report-directory-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        log.info("Watching '" + reportsFolder + "' for new reports");
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        running = false;
+        if(watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watch() {
+        // Pick up whatever was written while we weren't watching
+        scanAll();
+        while(running) {
+            try {
+                WatchKey key = watchService.poll(Math.min(debounceMs, 1000L), TimeUnit.MILLISECONDS);
+                long now = System.currentTimeMillis();
+                if(key != null) {
+                    if(handleEvents(key, now)) {
+                        scanAll();
+                    }
+                    if(!key.reset()) {
+                        log.error("Reports directory '" + reportsFolder + "' can no longer be watched");
+                        return;
+                    }
+                }
+                ingestSettled(now);
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Exception occured watching reports directory: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return true if events were lost and the whole directory has to be scanned
+     */
+    private boolean handleEvents(WatchKey key, long now) {
+        boolean overflow = false;
+        for(WatchEvent<?> event : key.pollEvents()) {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            String rootName = ReportDirectoryIndex.parseRootName(event.context().toString());
+            if(rootName != null) {
+                lastChanged.put(rootName, now);
+            }
+        }
+        return overflow;
+    }
+
+    private void ingestSettled(long now) {
+        List<String> settled = new ArrayList<String>();
+        Iterator<Map.Entry<String, Long>> i = lastChanged.entrySet().iterator();
+        while(i.hasNext()) {
+            Map.Entry<String, Long> entry = i.next();
+            long quiet = now - entry.getValue();
+            if(quiet >= idleTimeoutMs || (quiet >= debounceMs && isMissionEnded(entry.getKey()))) {
+                settled.add(entry.getKey());
+                i.remove();
+            }
+        }
+        if(!settled.isEmpty()) {
+            int count = reportFileScanner.ingest(settled);
+            log.info("Ingested " + count + " new reports of " + settled);
+        }
+    }
+
+    private boolean isMissionEnded(String rootName) {
+        List<File> chunks = ReportDirectoryIndex.probe(reportsFolder.getPath(), Collections.singleton(rootName)).getChunkFiles(rootName);
+        if(chunks.isEmpty()) {
+            return false;
+        }
+        try {
+            BufferedReader br = new BufferedReader(new FileReader(chunks.get(chunks.size() - 1)));
+            try {
+                String line = br.readLine();
+                while(line != null) {
+                    // T:18456 AType:7
+                    if(line.endsWith(" AType:7") || line.contains(" AType:7 ")) {
+                        return true;
+                    }
+                    line = br.readLine();
+                }
+            } finally {
+                br.close();
+            }
+        } catch (IOException e) {
+            log.warn("Could not read last chunk of '" + rootName + "': " + e.getMessage());
+        }
+        return false;
+    }
+
+    // Reports still pending are left pending, the scan skips reports that were already stored.
+    private void scanAll() {
+        log.info("Scanned " + reportFileScanner.scan() + " new reports");
+    }
+}
@@ -1,5 +1,9 @@
 package se.lu.bos.scanner;
 
+import se.lu.bos.rest.dto.RescanProgress;
+
+import java.util.Collection;
+
 /**
  * Created with IntelliJ IDEA.
  * User: Erik
@@ -9,5 +13,15 @@ package se.lu.bos.scanner;
  */
 public interface ReportFileScanner {
     int scan();
+    int ingest(Collection<String> rootFileNames);
     int rescan();
+
+    /**
+     * Starts rebuilding the stored reports in the background, unless that is already going on.
+     *
+     * @param all also rebuild the reports already derived by the current parser version
+     */
+    RescanProgress startRescan(boolean all);
+    RescanProgress getRescanProgress();
+    RescanProgress cancelRescan();
 }
@@ -3,18 +3,29 @@ package se.lu.bos.scanner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import se.lu.bos.dao.CareerDao;
+import se.lu.bos.dao.LogStore;
 import se.lu.bos.dao.StatsDao;
+import se.lu.bos.dao.TermDaoBean;
 import se.lu.bos.model.Stats;
+import se.lu.bos.parser.MultiPlayerParser;
 import se.lu.bos.parser.Parser;
+import se.lu.bos.parser.ReportDirectoryIndex;
+import se.lu.bos.rest.dto.RescanProgress;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.io.Reader;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created with IntelliJ IDEA.
@@ -24,90 +35,274 @@ import java.util.List;
  * To change this template use File | Settings | File Templates.
  */
 @Component
+@DependsOn(TermDaoBean.NAME)
 public class ReportFileScannerBean implements ReportFileScanner {
 
     private static final Logger log = LoggerFactory.getLogger(ReportFileScannerBean.class);
 
     public static final String DEFAULT_SCAN_FOLDER = "c:\\java\\bos-logs";
 
-    private final BasicReportFileFilter fileFilter = new BasicReportFileFilter();
-
     @Autowired
     StatsDao statsDao;
 
+    @Autowired
+    LogStore logStore;
+
+    @Autowired
+    CareerDao careerDao;
+
     @Autowired
     private Environment env;
     private String reportsFolder;
 
+    // When set, reports are tokenized straight from the chunk files and the full log is not kept in memory or stored
+    private boolean streaming;
+
+    // When set, every player of a report gets their own stats instead of only the first one to spawn
+    private boolean multiplayer;
+
+    // Parsing runs on a bounded pool, saving stays on the scanning thread so there is a single writer
+    private ThreadPoolExecutor parserPool;
+    // The per-player phases of multiplayer reports, kept apart so parser threads never wait for their own pool
+    private ThreadPoolExecutor playerPool;
+    private int queueDepth;
+    private int batchSize;
+
+    // Runs the one rescan job there may be at a time, the job itself rebuilds the reports on the parser pool
+    private ThreadPoolExecutor rescanRunner;
+    private final Object rescanLock = new Object();
+    private RescanJob rescanJob;
+    private int rescanPageSize;
+
     @PostConstruct
     public void init() {
         this.reportsFolder = env.getProperty("reports.directory", DEFAULT_SCAN_FOLDER);
+        this.streaming = env.getProperty("reports.streaming", Boolean.class, false);
         log.info("Set directory '" + this.reportsFolder + "' as reports folder");
+        if(streaming) {
+            log.info("Streaming ingestion enabled, full logs will not be stored");
+        }
+        this.multiplayer = env.getProperty("reports.multiplayer", Boolean.class, false);
+        if(multiplayer) {
+            log.info("Multiplayer ingestion enabled, one report is stored per player and full logs are stored once per mission");
+        }
+        int threads = Math.max(1, env.getProperty("scanner.threads", Integer.class, Runtime.getRuntime().availableProcessors()));
+        this.queueDepth = Math.max(1, env.getProperty("scanner.queueDepth", Integer.class, 2 * threads));
+        this.batchSize = Math.max(1, env.getProperty("scanner.batchSize", Integer.class, 20));
+        this.parserPool = newPool("report-parser-", threads, new ArrayBlockingQueue<Runnable>(queueDepth));
+        this.playerPool = newPool("player-parser-", threads, new LinkedBlockingQueue<Runnable>());
+        this.rescanRunner = newPool("report-rescan-", 1, new LinkedBlockingQueue<Runnable>());
+        this.rescanPageSize = Math.max(1, env.getProperty("scanner.rescanPageSize", Integer.class, 100));
+        log.info("Parsing reports on " + threads + " threads, saving in batches of " + batchSize);
+        // Ahead of any rescan, which runs on the same thread
+        rescanRunner.execute(new Runnable() {
+            @Override
+            public void run() {
+                migrateLegacyStorage();
+            }
+        });
     }
 
+    /**
+     * Moves the logs of reports stored before there was a log store out of report_stats, packs their flight
+     * tracks, codes the names of their hits and game objects, counts their hits and kills and counts them in the
+     * career totals, a page at a time.
+     */
+    private void migrateLegacyStorage() {
+        try {
+            int migrated = 0;
+            int count = statsDao.migrateLegacyLogs(rescanPageSize);
+            while(count > 0 && !Thread.currentThread().isInterrupted()) {
+                migrated += count;
+                log.info("Moved the logs of " + migrated + " reports to the log store");
+                count = statsDao.migrateLegacyLogs(rescanPageSize);
+            }
+            migrated = 0;
+            count = statsDao.migrateLegacyFlightTracks(rescanPageSize);
+            while(count > 0 && !Thread.currentThread().isInterrupted()) {
+                migrated += count;
+                log.info("Packed the flight tracks of " + migrated + " reports");
+                count = statsDao.migrateLegacyFlightTracks(rescanPageSize);
+            }
+            migrated = 0;
+            count = statsDao.migrateLegacyTerms(rescanPageSize);
+            while(count > 0 && !Thread.currentThread().isInterrupted()) {
+                migrated += count;
+                log.info("Coded the names of " + migrated + " hits and game objects");
+                count = statsDao.migrateLegacyTerms(rescanPageSize);
+            }
+            migrated = 0;
+            count = statsDao.summarizeUnsummarized(rescanPageSize);
+            while(count > 0 && !Thread.currentThread().isInterrupted()) {
+                migrated += count;
+                log.info("Counted the hits and kills of " + migrated + " reports");
+                count = statsDao.summarizeUnsummarized(rescanPageSize);
+            }
+            migrated = 0;
+            count = careerDao.countUncounted(rescanPageSize);
+            while(count > 0 && !Thread.currentThread().isInterrupted()) {
+                migrated += count;
+                log.info("Counted " + migrated + " reports in the career totals");
+                count = careerDao.countUncounted(rescanPageSize);
+            }
+        } catch (RuntimeException e) {
+            log.error("Exception occured migrating stored reports: " + e.getMessage());
+        }
+    }
 
-    public int scan() {
-        log.info("Start scheduled read of reports directory");
+    private static ThreadPoolExecutor newPool(final String namePrefix, int threads, BlockingQueue<Runnable> queue) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, namePrefix + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        // When the pool is full, e.g. because a scan and a rescan share it, the submitting thread parses itself
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
 
-        int scanCount = 0;
+    @PreDestroy
+    public void shutdown() {
+        parserPool.shutdownNow();
+        playerPool.shutdownNow();
+        synchronized(rescanLock) {
+            if(rescanJob != null) {
+                rescanJob.cancel();
+            }
+        }
+        rescanRunner.shutdownNow();
+    }
 
-        File[] files = new File(reportsFolder).listFiles(fileFilter);
-        if(files == null ||files.length == 0) {
+    /**
+     * Parses all reports not already stored on the parser pool and saves them in batches as they complete.
+     * Synchronized so that a scheduled and a requested scan can't ingest the same report twice.
+     */
+    public synchronized int scan() {
+        log.info("Start scheduled read of reports directory");
+
+        // List the directory once, all reports of this scan look up their chunk files in the index.
+        ReportDirectoryIndex index = ReportDirectoryIndex.scan(reportsFolder);
+        List<String> rootFileNames = index.getReportNames();
+        if(rootFileNames.isEmpty()) {
             log.warn("Specified report directory '" + reportsFolder + "' is empty or does not exist.");
             return 0;
         }
-        for(File f : files) {
-            String rootFileName = parseRootName(f);
-            if(!statsDao.exists(clean(rootFileName))) {
-                try {
-                    Stats stats = new Parser().buildStatsFromRootFileName(reportsFolder, rootFileName);
-                    log.info("Built new stats object: " + stats.toString());
-                    stats = statsDao.save(stats);
-                    log.info("Saved with ID: " + stats.getId());
-                    scanCount++;
-                } catch (IOException e) {
-                    log.error("Exception occured scanning root file '" + rootFileName + "': " + e.getMessage());
+        return ingest(index, rootFileNames);
+    }
+
+    /**
+     * Ingests the given reports without listing the reports directory, their chunk files are looked up by name.
+     */
+    @Override
+    public synchronized int ingest(Collection<String> rootFileNames) {
+        return ingest(ReportDirectoryIndex.probe(reportsFolder, rootFileNames), rootFileNames);
+    }
+
+    private int ingest(final ReportDirectoryIndex index, Collection<String> rootFileNames) {
+        Map<String, String> rootFileNamesByCleanName = new LinkedHashMap<String, String>();
+        for(String rootFileName : rootFileNames) {
+            rootFileNamesByCleanName.put(Parser.cleanRootName(rootFileName), rootFileName);
+        }
+        rootFileNamesByCleanName.keySet().removeAll(statsDao.findExistingRootFileNames(rootFileNamesByCleanName.keySet()));
+
+        // One parser serves all workers of this ingestion, it looks up the chunk files in the same index
+        final Parser parser = new Parser(index);
+        final MultiPlayerParser multiPlayerParser = new MultiPlayerParser(index, playerPool);
+        BatchedIngestion ingestion = new BatchedIngestion(parserPool, queueDepth, batchSize, statsDao);
+        for(final String rootFileName : rootFileNamesByCleanName.values()) {
+            ingestion.submit(new Callable<List<Stats>>() {
+                @Override
+                public List<Stats> call() throws Exception {
+                    try {
+                        return parse(parser, multiPlayerParser, rootFileName);
+                    } catch (IOException e) {
+                        throw new IOException("Exception occured scanning root file '" + rootFileName + "': " + e.getMessage(), e);
+                    }
                 }
+            });
+        }
+        return ingestion.finish();
+    }
+
+    private List<Stats> parse(Parser parser, MultiPlayerParser multiPlayerParser, String rootFileName) throws IOException {
+        if(multiplayer) {
+            List<Stats> statsList = multiPlayerParser.streamStatsFromRootFileName(reportsFolder, rootFileName);
+            if(!statsList.isEmpty()) {
+                storeLog(multiPlayerParser, rootFileName, statsList.get(0).getLogHash());
             }
+            return statsList;
+        }
+        if(streaming) {
+            return Collections.singletonList(parser.streamStatsFromRootFileName(reportsFolder, rootFileName));
         }
-        return scanCount;
+        return Collections.singletonList(parser.buildStatsFromRootFileName(reportsFolder, rootFileName));
     }
 
+    // The reports of all players share one log, stored as it is read from the chunk files once more
+    private void storeLog(MultiPlayerParser multiPlayerParser, String rootFileName, String logHash) throws IOException {
+        if(logStore.contains(logHash)) {
+            return;
+        }
+        Reader log = multiPlayerParser.openLog(reportsFolder, rootFileName);
+        try {
+            logStore.store(logHash, log);
+        } finally {
+            log.close();
+        }
+    }
+
+    /**
+     * Rebuilds the stored reports derived by an older parser version and waits for it, joining a rescan already
+     * running if any.
+     */
     @Override
     public int rescan() {
-        List<Stats> statsList = statsDao.getAll();
-        int count = 0;
-        for(Stats s : statsList) {
-            if(s.getFullLog() != null) {
-                s = resetStats(s);
-                rebuildStats(s);
-                count++;
-            }
+        try {
+            return startRescanJob(Parser.PARSER_VERSION).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for rescan", e);
         }
-        return count;
     }
 
-    private void rebuildStats(Stats s) {
-        s = new Parser().rebuildFromStoredLog(s, s.getFullLog());
-        statsDao.update(s);
+    @Override
+    public RescanProgress startRescan(boolean all) {
+        return startRescanJob(all ? Integer.MAX_VALUE : Parser.PARSER_VERSION).getProgress();
     }
 
-    private Stats resetStats(Stats s) {
-        s.getAssociatedObjects().clear();
-        s.getKills().clear();
-        s.getFlightTrack().clear();
-        s.getHits().clear();
-        s.getHitsTaken().clear();
-        s.getUniqueAmmoTypes().clear();
-        return statsDao.update(s);
+    @Override
+    public RescanProgress getRescanProgress() {
+        synchronized(rescanLock) {
+            return rescanJob != null ? rescanJob.getProgress() : new RescanProgress();
+        }
     }
 
-    public String parseRootName(File f) {
-        return f.getName().substring(0, f.getName().length() - 7);
+    @Override
+    public RescanProgress cancelRescan() {
+        synchronized(rescanLock) {
+            if(rescanJob == null) {
+                return new RescanProgress();
+            }
+            rescanJob.cancel();
+            return rescanJob.getProgress();
+        }
+    }
 
+    private RescanJob startRescanJob(int olderThanVersion) {
+        synchronized(rescanLock) {
+            if(rescanJob == null || rescanJob.isDone()) {
+                rescanJob = new RescanJob(statsDao, logStore, parserPool, queueDepth, batchSize, rescanPageSize, olderThanVersion);
+                rescanRunner.execute(rescanJob);
+            }
+            return rescanJob;
+        }
     }
 
-    private String clean(String rootName) {
-        return rootName.replaceAll("[^a-zA-Z0-9\\s]", "");
+    public String parseRootName(File f) {
+        return f.getName().substring(0, f.getName().length() - 7);
+
     }
 }
@@ -0,0 +1,142 @@
+package se.lu.bos.scanner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.lu.bos.dao.LogStore;
+import se.lu.bos.dao.StatsDao;
+import se.lu.bos.model.Stats;
+import se.lu.bos.parser.Parser;
+import se.lu.bos.rest.dto.RescanProgress;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Rebuilds the stored reports having a full log from that log, e.g. after the parser has been improved. Only
+ * reports derived by a parser older than a given version are rebuilt, see {@link Parser#PARSER_VERSION}.
+ *
+ * Pages through the report IDs rather than loading all reports. Each worker rebuilds a single report while
+ * decompressing its log from the {@link LogStore}, so not even the text of the logs in flight is held in memory. The rebuilt reports are written in
+ * batches by the thread running the job. A cancelled job finishes the reports already in flight and then stops.
+ */
+class RescanJob implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(RescanJob.class);
+
+    private final StatsDao statsDao;
+    private final LogStore logStore;
+    private final ThreadPoolExecutor pool;
+    private final int queueDepth;
+    private final int batchSize;
+    private final int pageSize;
+    private final int olderThanVersion;
+    // Shared by all workers of the job
+    private final Parser parser = new Parser();
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean cancelled = false;
+    private volatile long total = 0;
+    private volatile BatchedIngestion ingestion;
+
+    RescanJob(StatsDao statsDao, LogStore logStore, ThreadPoolExecutor pool, int queueDepth, int batchSize, int pageSize, int olderThanVersion) {
+        this.statsDao = statsDao;
+        this.logStore = logStore;
+        this.pool = pool;
+        this.queueDepth = queueDepth;
+        this.batchSize = batchSize;
+        this.pageSize = pageSize;
+        this.olderThanVersion = olderThanVersion;
+    }
+
+    @Override
+    public void run() {
+        try {
+            total = statsDao.countRebuildable(olderThanVersion);
+            log.info("Rescanning " + total + " stored reports");
+            ingestion = new BatchedIngestion(pool, queueDepth, batchSize, statsDao);
+            Long afterId = 0L;
+            List<Long> ids = statsDao.findRebuildableIds(afterId, olderThanVersion, pageSize);
+            while(!ids.isEmpty() && !cancelled) {
+                for(final Long id : ids) {
+                    ingestion.submit(new Callable<List<Stats>>() {
+                        @Override
+                        public List<Stats> call() throws IOException {
+                            return rebuild(id);
+                        }
+                    });
+                    if(cancelled) {
+                        break;
+                    }
+                }
+                afterId = ids.get(ids.size() - 1);
+                ids = statsDao.findRebuildableIds(afterId, olderThanVersion, pageSize);
+            }
+            int rebuilt = ingestion.finish();
+            log.info((cancelled ? "Cancelled rescan after rebuilding " : "Rescanned ") + rebuilt + " reports");
+        } catch (RuntimeException e) {
+            log.error("Rescan failed: " + e.getMessage());
+        } finally {
+            done.countDown();
+        }
+    }
+
+    private List<Stats> rebuild(Long id) throws IOException {
+        Stats stats = statsDao.findForRebuild(id);
+        if(stats == null) {
+            // Deleted since the page was read
+            return Collections.emptyList();
+        }
+        try {
+            if(stats.getFullLog() != null) {
+                return Collections.singletonList(parser.rebuildFromStoredLog(stats, stats.getFullLog()));
+            }
+            Reader fullLog = logStore.open(stats.getLogHash());
+            if(fullLog == null) {
+                throw new IllegalStateException("Log " + stats.getLogHash() + " is missing from the log store");
+            }
+            try {
+                return Collections.singletonList(parser.rebuildFromStoredLog(stats, fullLog));
+            } finally {
+                fullLog.close();
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Exception occured rebuilding report " + id + ": " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new IOException("Exception occured rebuilding report " + id + ": " + e.getMessage(), e);
+        }
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    /**
+     * @return the number of reports rebuilt
+     */
+    int await() throws InterruptedException {
+        done.await();
+        return ingestion != null ? ingestion.getSaved() : 0;
+    }
+
+    RescanProgress getProgress() {
+        RescanProgress progress = new RescanProgress();
+        progress.setRunning(!isDone());
+        progress.setCancelled(cancelled);
+        progress.setTotal(total);
+        BatchedIngestion current = ingestion;
+        if(current != null) {
+            progress.setRebuilt(current.getSaved());
+            progress.setFailed(current.getFailed());
+        }
+        return progress;
+    }
+}
@@ -0,0 +1,119 @@
+package se.lu.bos.util;
+
+import se.lu.bos.model.FlightTrack;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Packs a {@link FlightTrack} into a compact blob and back.
+ *
+ * The coordinates are quantized to whole centimetres, about the precision a float has at the far edges of the
+ * maps anyway. The blob holds a version byte and the number of positions, followed by the ticks, x, y and z
+ * columns in turn. Every column is delta encoded against the previous position and written as zigzag varints,
+ * consecutive positions are close in both time and space so most values take one to three bytes.
+ */
+public class FlightTrackCodec {
+
+    private static final int VERSION = 1;
+    private static final double UNITS_PER_METRE = 100.0;
+
+    public static byte[] encode(FlightTrack track) {
+        int size = track.size();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + size * 8);
+        out.write(VERSION);
+        writeVarint(out, size);
+        int previous = 0;
+        for(int i = 0; i < size; i++) {
+            previous = writeDelta(out, previous, track.getTick(i));
+        }
+        previous = 0;
+        for(int i = 0; i < size; i++) {
+            previous = writeDelta(out, previous, quantize(track.getX(i)));
+        }
+        previous = 0;
+        for(int i = 0; i < size; i++) {
+            previous = writeDelta(out, previous, quantize(track.getY(i)));
+        }
+        previous = 0;
+        for(int i = 0; i < size; i++) {
+            previous = writeDelta(out, previous, quantize(track.getZ(i)));
+        }
+        return out.toByteArray();
+    }
+
+    public static FlightTrack decode(byte[] packed) {
+        Input in = new Input(packed);
+        int version = in.next();
+        if(version != VERSION) {
+            throw new IllegalArgumentException("Unknown flight track version " + version);
+        }
+        int size = in.readVarint();
+        int[] ticks = in.readDeltas(size);
+        int[] xs = in.readDeltas(size);
+        int[] ys = in.readDeltas(size);
+        int[] zs = in.readDeltas(size);
+        FlightTrack track = new FlightTrack(size);
+        for(int i = 0; i < size; i++) {
+            track.add(ticks[i], (float) (xs[i] / UNITS_PER_METRE), (float) (ys[i] / UNITS_PER_METRE), (float) (zs[i] / UNITS_PER_METRE));
+        }
+        return track;
+    }
+
+    // Computed in double, a float has too few digits to hold far out coordinates in centimetres
+    private static int quantize(float metres) {
+        return (int) Math.round(metres * UNITS_PER_METRE);
+    }
+
+    private static int writeDelta(ByteArrayOutputStream out, int previous, int value) {
+        int delta = value - previous;
+        writeVarint(out, (delta << 1) ^ (delta >> 31));
+        return value;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static class Input {
+        private final byte[] bytes;
+        private int offset = 0;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int next() {
+            if(offset >= bytes.length) {
+                throw new IllegalArgumentException("Flight track ends after " + offset + " bytes");
+            }
+            return bytes[offset++] & 0xff;
+        }
+
+        int readVarint() {
+            int value = 0;
+            for(int shift = 0; shift < 35; shift += 7) {
+                int b = next();
+                value |= (b & 0x7f) << shift;
+                if((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint at offset " + offset);
+        }
+
+        int[] readDeltas(int size) {
+            int[] values = new int[size];
+            int previous = 0;
+            for(int i = 0; i < size; i++) {
+                int zigzag = readVarint();
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                values[i] = previous;
+            }
+            return values;
+        }
+    }
+}
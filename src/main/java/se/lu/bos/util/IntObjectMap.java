@@ -0,0 +1,122 @@
+package se.lu.bos.util;
+
+import java.util.Arrays;
+
+/**
+ * Minimal open addressing hash map from primitive int keys to non-null values.
+ *
+ * Avoids boxing the keys and the per-entry node objects of a HashMap&lt;Integer, V&gt;, which matters when indexing
+ * every game object of a large multiplayer log. Not thread-safe for writes.
+ */
+public class IntObjectMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private Object[] values;
+    private int size = 0;
+
+    public IntObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntObjectMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while(capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while(values[i] != null) {
+            if(keys[i] == key) {
+                return (V) values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return the previous value for the key, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if(value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while(values[i] != null) {
+            if(keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if(++size > keys.length * LOAD_FACTOR) {
+            grow();
+        }
+        return null;
+    }
+
+    /**
+     * Stores the value only if the key isn't already mapped.
+     *
+     * @return the existing value, or null if the new value was stored.
+     */
+    public V putIfAbsent(int key, V value) {
+        V existing = get(key);
+        if(existing != null) {
+            return existing;
+        }
+        put(key, value);
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length << 1];
+        values = new Object[oldValues.length << 1];
+        size = 0;
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldValues[i] != null) {
+                put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+
+    // Game object IDs are often allocated in strides, spread them over the table.
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
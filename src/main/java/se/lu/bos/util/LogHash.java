@@ -0,0 +1,71 @@
+package se.lu.bos.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Fingerprints of mission report logs, so that stored reports can tell whether they were derived from the same log.
+ */
+public class LogHash {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * @return the SHA-256 of the UTF-8 encoded log as 64 lower case hex digits
+     */
+    public static String sha256(String log) {
+        return toHex(newSha256().digest(log.getBytes(UTF8)));
+    }
+
+    /**
+     * Same as {@link #sha256(String)} for a log read as a stream, which is hashed as it is read.
+     */
+    public static String sha256(Reader log) throws IOException {
+        MessageDigest digest = newSha256();
+        Writer utf8 = new OutputStreamWriter(new DigestOutputStream(new NullOutputStream(), digest), UTF8);
+        char[] buffer = new char[64 * 1024];
+        int read;
+        while((read = log.read(buffer)) != -1) {
+            utf8.write(buffer, 0, read);
+        }
+        utf8.close();
+        return toHex(digest.digest());
+    }
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for(int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    // The digest is all that's kept of what is written
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
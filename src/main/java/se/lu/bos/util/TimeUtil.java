@@ -8,7 +8,6 @@ import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.PeriodFormat;
 
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
@@ -20,7 +19,9 @@ import java.util.Date;
  */
 public class TimeUtil {
 
-    private static SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+    // Unlike SimpleDateFormat, the joda formatters may be shared between request threads
+    private static DateTimeFormatter datePattern = DateTimeFormat.forPattern("yyyy-MM-dd HH:mm");
+    private static DateTimeFormatter dayPattern = DateTimeFormat.forPattern("yyyy-MM-dd");
     private static DateTimeFormatter timePattern = DateTimeFormat.forPattern("HH:mm:ss");
 
     public static String gameTickToTime(Integer tick) {
@@ -45,7 +46,15 @@ public class TimeUtil {
     }
 
     public static String parseDate(Date date) {
-        return sdf.format(date);
+        return datePattern.print(date.getTime());
+    }
+
+    /**
+     * @return the start of a day given as e.g. 2014-12-03
+     * @throws IllegalArgumentException if it isn't a date
+     */
+    public static Date parseDay(String yyyyMMdd) {
+        return dayPattern.parseDateTime(yyyyMMdd).toDate();
     }
 
     public static String fromSeconds(Integer seconds) {
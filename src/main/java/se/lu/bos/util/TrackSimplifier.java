@@ -0,0 +1,118 @@
+package se.lu.bos.util;
+
+import se.lu.bos.model.FlightTrack;
+
+import java.util.Arrays;
+
+/**
+ * Douglas-Peucker simplification of flight tracks as drawn on the map, i.e. using the horizontal x/z distance.
+ *
+ * Rather than simplifying the track once per tolerance, {@link #rank(FlightTrack)} runs Douglas-Peucker a single
+ * time and records for every position the largest tolerance at which it would still be kept. Simplifying for any
+ * tolerance or number of positions is then a single pass over the ranks, which give the exact same positions as
+ * running Douglas-Peucker with that tolerance would.
+ */
+public class TrackSimplifier {
+
+    /**
+     * @return for each position the largest tolerance in metres at which it is kept, infinite for the end points.
+     */
+    public static float[] rank(FlightTrack track) {
+        int size = track.size();
+        float[] ranks = new float[size];
+        if(size == 0) {
+            return ranks;
+        }
+        ranks[0] = Float.POSITIVE_INFINITY;
+        ranks[size - 1] = Float.POSITIVE_INFINITY;
+
+        // Segments still to split as first index, last index and the rank of the position splitting their parent.
+        // Explicit rather than recursive so that long tracks can't overflow the stack.
+        int[] firsts = new int[64];
+        int[] lasts = new int[64];
+        float[] bounds = new float[64];
+        int pending = 0;
+        firsts[0] = 0;
+        lasts[0] = size - 1;
+        bounds[0] = Float.POSITIVE_INFINITY;
+        pending++;
+        while(pending > 0) {
+            pending--;
+            int first = firsts[pending];
+            int last = lasts[pending];
+            float bound = bounds[pending];
+            if(last - first < 2) {
+                continue;
+            }
+            int farthest = first + 1;
+            float maxDistance = -1f;
+            for(int i = first + 1; i < last; i++) {
+                float distance = distanceToSegment(track, i, first, last);
+                if(distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+            // A position can't outlive the one its segment was split at
+            float rank = Math.min(maxDistance, bound);
+            ranks[farthest] = rank;
+
+            if(pending + 2 > firsts.length) {
+                firsts = Arrays.copyOf(firsts, firsts.length << 1);
+                lasts = Arrays.copyOf(lasts, lasts.length << 1);
+                bounds = Arrays.copyOf(bounds, bounds.length << 1);
+            }
+            firsts[pending] = first;
+            lasts[pending] = farthest;
+            bounds[pending] = rank;
+            pending++;
+            firsts[pending] = farthest;
+            lasts[pending] = last;
+            bounds[pending] = rank;
+            pending++;
+        }
+        return ranks;
+    }
+
+    /**
+     * @return the positions kept by Douglas-Peucker with the given tolerance in metres
+     */
+    public static FlightTrack simplify(FlightTrack track, float[] ranks, float tolerance) {
+        FlightTrack simplified = new FlightTrack();
+        for(int i = 0; i < track.size(); i++) {
+            if(ranks[i] > tolerance) {
+                simplified.add(track.getTick(i), track.getX(i), track.getY(i), track.getZ(i));
+            }
+        }
+        return simplified;
+    }
+
+    /**
+     * @return the track simplified with the smallest tolerance leaving at most maxPositions, but at least the end
+     * points.
+     */
+    public static FlightTrack simplify(FlightTrack track, float[] ranks, int maxPositions) {
+        int keep = Math.max(2, maxPositions);
+        if(track.size() <= keep) {
+            return simplify(track, ranks, -1f);
+        }
+        float[] sorted = Arrays.copyOf(ranks, ranks.length);
+        Arrays.sort(sorted);
+        return simplify(track, ranks, sorted[sorted.length - keep - 1]);
+    }
+
+    private static float distanceToSegment(FlightTrack track, int i, int first, int last) {
+        double x = track.getX(i);
+        double z = track.getZ(i);
+        double x1 = track.getX(first);
+        double z1 = track.getZ(first);
+        double dx = track.getX(last) - x1;
+        double dz = track.getZ(last) - z1;
+        double lengthSquared = dx * dx + dz * dz;
+        double t = lengthSquared == 0 ? 0 : ((x - x1) * dx + (z - z1) * dz) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        double ex = x - (x1 + t * dx);
+        double ez = z - (z1 + t * dz);
+        return (float) Math.sqrt(ex * ex + ez * ez);
+    }
+}
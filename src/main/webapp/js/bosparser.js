@@ -77,8 +77,15 @@ var bosparser = new function() {
         $('#career-panel').addClass('hidden');
         $('#mapbtn').addClass('disabled');
         $('#mapcontainer').addClass('hidden');
-        $.get('/rest/view/tinyreports', function(data) {
-            $('#sidebar').empty();
+        $('#sidebar').empty();
+        bosparser.appendSidebarPage(null);
+    }
+
+    // Appends the page of reports following the cursor, with a link to the next page if there is one
+    this.appendSidebarPage = function(cursor) {
+        $.get('/rest/view/tinyreports' + (cursor != null ? '?after=' + cursor : ''), function(page) {
+            var data = page.reports;
+            $('#sidebar_more').remove();
             if(data.length > 0) {
                 for(var a = 0; a < data.length; a++) {
                     var tpl = '<li id="mission_'+data[a].id + '"><a href="#">'+data[a].title + '<div style="font-size:8pt;">'+data[a].pilotPlane + '</div><div style="font-size:8pt;">'+data[a].created + '</div></a></li>';
@@ -92,7 +99,13 @@ var bosparser = new function() {
 
                     );
                 }
-            } else {
+                if(page.next != null) {
+                    $('#sidebar').append('<li id="sidebar_more"><a href="#">More...</a></li>');
+                    $('#sidebar_more').click(function() {
+                        bosparser.appendSidebarPage(page.next);
+                    });
+                }
+            } else if(cursor == null) {
                 $('#sidebar').html('No reports scanned yet');
             }
 
@@ -293,7 +306,7 @@ var bosparser = new function() {
         $('#mapbtn').addClass('disabled');
         $('#missions-panel').addClass('hidden');
         $('#career-panel').removeClass('hidden');
-        $.get('/rest/view/totalrx', function(data) {
+        $.get('/rest/view/total', function(data) {
 
             $('#missions').html(data.missions);
             $('#totalDuration').html(data.totalFlightTime);
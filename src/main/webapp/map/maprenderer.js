@@ -12,6 +12,9 @@ var maprenderer = new function() {
     var MAP_PIXEL_SIZE_X = 8192;
     var MAP_PIXEL_SIZE_Y = 5245;
 
+    // Metres a drawn flight track may be off the logged positions, about half a pixel of the full size map image
+    var TRACK_TOLERANCE = 20;
+
     var mouseX, mouseY, imageX = 0, imageY = 0, startX = 0, startY = 0, offsetX = 0, offsetY = 0;
 
 
@@ -38,7 +41,12 @@ var maprenderer = new function() {
 
         if(missionid == null) return;
         $body.addClass("loading");
-        $.get('/rest/view/reports/' + missionid, function(data) {
+        // Only the sections of the report the map draws
+        var reportUrl = '/rest/view/reports/' + missionid;
+        $.when($.get(reportUrl + '/kills'),
+               $.get(reportUrl + '/hits'),
+               $.get(reportUrl + '/track?tolerance=' + TRACK_TOLERANCE)).done(function(kills, hits, track) {
+            var data = {kills : kills[0], hits : hits[0], flightTrack : track[0]};
             sData = data;
 
             modelhelper.enrichKillsWithHits(sData);
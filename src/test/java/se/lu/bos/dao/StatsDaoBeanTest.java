@@ -0,0 +1,74 @@
+package se.lu.bos.dao;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import se.lu.bos.model.Stats;
+import se.lu.bos.parser.Parser;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class StatsDaoBeanTest {
+
+    private static final String LOG =
+            "T:0 AType:0 GDate:1942.12.11 GTime:11:45:0 MFile:Missions/test.msnbin MID: GType:0\r\n" +
+            "T:5 AType:10 PLID:2877 PID:3877 BUL:1200 SH:0 BOMB:0 RCT:0 (1.0,2.0,3.0) NAME:Lupson TYPE:Bf 109 G-2 COUNTRY:201\r\n" +
+            "T:10 AType:12 ID:2877 TYPE:Bf 109 G-2 COUNTRY:201 NAME:noname PID:-1 POS(1.000,2.000,3.000)\r\n" +
+            "T:10 AType:12 ID:28771 TYPE:Yak-1 ser.69 COUNTRY:101 NAME:noname PID:-1 POS(1.000,2.000,3.000)\r\n" +
+            "T:65095 AType:1 AMMO:SHELL_GER_20x82_AP AID:2877 TID:28771\r\n" +
+            "T:65095 AType:2 DMG:0.030 AID:2877 TID:28771 POS(1.000,2.000,3.000)\r\n" +
+            "T:65100 AType:1 AMMO:BULLET_RUS_762x54_AP AID:28771 TID:2877\r\n" +
+            "T:70670 AType:3 AID:-1 TID:28771 POS(114849.367,512.380,131898.188)\r\n";
+
+    private EntityManagerFactory emf;
+    private StatsDaoBean dao;
+
+    @BeforeMethod
+    public void setup() {
+        emf = Persistence.createEntityManagerFactory("reports-test");
+        dao = new StatsDaoBean();
+        dao.em = emf.createEntityManager();
+        dao.logStore = mock(LogStore.class);
+        dao.careerDao = mock(CareerDao.class);
+        dao.termDao = mock(TermDao.class);
+    }
+
+    @AfterMethod
+    public void teardown() {
+        dao.em.close();
+        emf.close();
+    }
+
+    public void testRebuildLeavesNoOrphanedRows() {
+        dao.em.getTransaction().begin();
+        Long id = dao.save(new Parser().rebuildFromStoredLog(new Stats(), LOG)).getId();
+        dao.em.getTransaction().commit();
+        dao.em.clear();
+        long hits = count("Hit");
+        long gameObjects = count("GameObject");
+        assertTrue(hits > 0);
+        assertTrue(gameObjects > 0);
+
+        for(int i = 0; i < 2; i++) {
+            Stats rebuild = dao.findForRebuild(id);
+            dao.em.getTransaction().begin();
+            dao.update(new Parser().rebuildFromStoredLog(rebuild, LOG));
+            dao.em.getTransaction().commit();
+            dao.em.clear();
+        }
+
+        assertEquals(count("Stats"), 1L);
+        assertEquals(count("Hit"), hits);
+        assertEquals(count("GameObject"), gameObjects);
+    }
+
+    private long count(String entity) {
+        return dao.em.createQuery("SELECT COUNT(e) FROM " + entity + " e", Long.class).getSingleResult();
+    }
+}
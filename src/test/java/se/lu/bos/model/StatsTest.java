@@ -0,0 +1,174 @@
+package se.lu.bos.model;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class StatsTest {
+
+    @Test
+    public void testHitsAreKeptInTickOrder() {
+        Stats stats = new Stats();
+        stats.addHit(hit("A", 300L));
+        stats.addHit(hit("B", 100L));
+        stats.addHit(hit("C", 200L));
+        stats.addHit(hit("D", 100L));
+        stats.addHit(hit("E", 400L));
+
+        assertEquals(ammoOf(stats.getHits()), "BDCAE");
+    }
+
+    @Test
+    public void testSetHitsSortsOnce() {
+        List<Hit> hits = new ArrayList<Hit>();
+        hits.add(hit("A", 30L));
+        hits.add(hit("B", 10L));
+        hits.add(hit("C", 20L));
+        Stats stats = new Stats();
+        stats.setHits(hits);
+        stats.addHit(hit("D", 15L));
+
+        assertEquals(ammoOf(stats.getHits()), "BDCA");
+    }
+
+    @Test
+    public void testHitsBetween() {
+        Stats stats = new Stats();
+        for(long tick = 0; tick < 10; tick++) {
+            stats.addHit(hit(String.valueOf(tick), tick * 10));
+        }
+
+        assertEquals(ammoOf(stats.getHitsBetween(20, 50)), "2345");
+        assertEquals(ammoOf(stats.getHitsBetween(21, 49)), "34");
+        assertEquals(ammoOf(stats.getHitsBetween(-100, 5)), "0");
+        assertEquals(ammoOf(stats.getHitsBetween(95, 200)), "");
+        assertEquals(ammoOf(stats.getHitsBetween(50, 20)), "");
+    }
+
+    @Test
+    public void testKillsWithoutTimeComeFirst() {
+        Stats stats = new Stats();
+        stats.addKill(kill(1, 500));
+        stats.addKill(kill(2, null));
+        stats.addKill(kill(3, 100));
+
+        assertEquals(idsOf(stats.getKills()), "231");
+        assertEquals(idsOf(stats.getKillsBetween(0, 1000)), "31");
+    }
+
+    @Test
+    public void testUpdateTimeOfKillMovesKill() {
+        Stats stats = new Stats();
+        GameObject first = kill(1, 100);
+        stats.addKill(first);
+        stats.addKill(kill(2, 200));
+        stats.addKill(kill(3, 300));
+
+        stats.updateTimeOfKill(first, 250);
+
+        assertEquals(idsOf(stats.getKills()), "213");
+        assertEquals(first.getTimeOfKill().intValue(), 250);
+    }
+
+    @Test
+    public void testKillsCannotBeAddedToOutOfOrder() {
+        Stats stats = new Stats();
+        try {
+            stats.getKills().add(kill(1, 100));
+        } catch (UnsupportedOperationException e) {
+            assertTrue(stats.getKills().isEmpty());
+            return;
+        }
+        throw new AssertionError("getKills() should not be modifiable");
+    }
+
+    @Test
+    public void testHitAndKillCounts() {
+        Stats stats = new Stats();
+        stats.addHit(hit("BULLET_GER_792x57_AP", 10L));
+        stats.addHit(hit("explosion_HE_20mm", 20L));
+        stats.addHit(hit("BULLET_GER_792x57_AP", 30L));
+        stats.addKill(kill(1, 100, GameObjectType.VEHICLE));
+        stats.addKill(kill(2, 110, GameObjectType.PILOT));
+        stats.addKill(kill(3, 120, GameObjectType.VEHICLE));
+        stats.updateSummary();
+
+        assertEquals(stats.getNonExplosiveHits().intValue(), 2);
+        assertEquals(stats.getExplosiveHits().intValue(), 1);
+        assertEquals(stats.getHitsOfType("BULLET_GER_792x57_AP").intValue(), 2);
+        assertEquals(stats.getHitsOfType("SHELL_GER_20x82_AP").intValue(), 0);
+        assertEquals(stats.getUniqueAmmoTypes().toString(), "[BULLET_GER_792x57_AP, explosion_HE_20mm]");
+        assertEquals(stats.getAircraftKillCount().intValue(), 2);
+        assertEquals(stats.getPilotKillCount().intValue(), 1);
+    }
+
+    @Test
+    public void testCountsFollowChanges() {
+        Stats stats = new Stats();
+        stats.addHit(hit("BULLET_GER_792x57_AP", 10L));
+        stats.addKill(kill(1, 100, GameObjectType.VEHICLE));
+        stats.updateSummary();
+        assertEquals(stats.getHitsOfType("BULLET_GER_792x57_AP").intValue(), 1);
+        assertEquals(stats.getAircraftKillCount().intValue(), 1);
+
+        stats.addHit(hit("BULLET_GER_792x57_AP", 20L));
+        stats.addKill(kill(2, 110, GameObjectType.VEHICLE));
+        stats.updateSummary();
+        assertEquals(stats.getHitsOfType("BULLET_GER_792x57_AP").intValue(), 2);
+        assertEquals(stats.getAircraftKillCount().intValue(), 2);
+
+        stats.setHits(new ArrayList<Hit>());
+        stats.updateSummary();
+        assertEquals(stats.getNonExplosiveHits().intValue(), 0);
+        assertTrue(stats.getUniqueAmmoTypes().isEmpty());
+    }
+
+    @Test
+    public void testGettersOnlyReadTheCounts() {
+        Stats stats = new Stats();
+        stats.addHit(hit("BULLET_GER_792x57_AP", 10L));
+        stats.updateSummary();
+        stats.addHit(hit("BULLET_GER_792x57_AP", 20L));
+
+        assertEquals(stats.getHitsOfType("BULLET_GER_792x57_AP").intValue(), 1);
+        assertEquals(stats.getHitsByAmmo().get("BULLET_GER_792x57_AP").intValue(), 1);
+        assertEquals(stats.getNonExplosiveHits().intValue(), 1);
+    }
+
+    private Hit hit(String ammo, Long tick) {
+        return new Hit(ammo, tick, 1, 2);
+    }
+
+    private GameObject kill(int id, Integer timeOfKill) {
+        return kill(id, timeOfKill, GameObjectType.VEHICLE);
+    }
+
+    private GameObject kill(int id, Integer timeOfKill, GameObjectType type) {
+        GameObject kill = new GameObject();
+        kill.setGameObjectId(id);
+        kill.setTimeOfKill(timeOfKill);
+        kill.setGameObjectType(type);
+        return kill;
+    }
+
+    private String ammoOf(List<Hit> hits) {
+        StringBuilder sb = new StringBuilder();
+        for(Hit hit : hits) {
+            sb.append(hit.getAmmo());
+        }
+        return sb.toString();
+    }
+
+    private String idsOf(List<GameObject> kills) {
+        StringBuilder sb = new StringBuilder();
+        for(GameObject kill : kills) {
+            sb.append(kill.getGameObjectId());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package se.lu.bos.model;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class TermsTest {
+
+    @Test
+    public void testNameGetsOneCode() {
+        Integer code = Terms.code(Term.Kind.AMMO, "SHELL_GER_20x82_AP");
+        assertEquals(Terms.code(Term.Kind.AMMO, new String("SHELL_GER_20x82_AP")), code);
+        assertEquals(Terms.name(code), "SHELL_GER_20x82_AP");
+    }
+
+    @Test
+    public void testKindsAreCodedApart() {
+        Integer type = Terms.code(Term.Kind.OBJECT_TYPE, "Germany");
+        Integer country = Terms.code(Term.Kind.COUNTRY, "Germany");
+        assertFalse(type.equals(country));
+        assertEquals(Terms.name(type), Terms.name(country));
+    }
+
+    @Test
+    public void testNullsAndUnknownCodes() {
+        assertNull(Terms.code(Term.Kind.AMMO, null));
+        assertNull(Terms.name(null));
+        assertNull(Terms.name(-1));
+    }
+
+    @Test
+    public void testFindDoesNotCodeNewNames() {
+        Integer code = Terms.code(Term.Kind.AMMO, "BULLET_RUS_762x54_AP");
+        assertEquals(Terms.find(Term.Kind.AMMO, "BULLET_RUS_762x54_AP"), code);
+        assertNull(Terms.find(Term.Kind.AMMO, "BULLET_NEVER_CODED"));
+        assertNull(Terms.find(Term.Kind.AMMO, "BULLET_NEVER_CODED"));
+    }
+
+    @Test
+    public void testNewTermsAreTakenOnce() {
+        Terms.takeUnsaved();
+        Integer code = Terms.code(Term.Kind.OBJECT_TYPE, "Bf 109 F-4 TermsTest");
+        List<Term> unsaved = Terms.takeUnsaved();
+        assertEquals(unsaved.size(), 1);
+        assertEquals(unsaved.get(0).getCode(), code);
+        assertTrue(Terms.takeUnsaved().isEmpty());
+    }
+
+    @Test
+    public void testHitSharesTheNames() {
+        Hit first = new Hit(new String("BULLET_GER_792x57_AP"), 10L, 1, 2);
+        Hit second = new Hit(new String("BULLET_GER_792x57_AP"), 20L, 1, 2);
+        assertSame(first.getAmmo(), second.getAmmo());
+        assertEquals(first.getAmmoCode(), second.getAmmoCode());
+    }
+}
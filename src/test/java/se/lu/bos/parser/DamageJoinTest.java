@@ -0,0 +1,33 @@
+package se.lu.bos.parser;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@Test
+public class DamageJoinTest {
+
+    private static final String LOG =
+            "T:100 AType:1 AMMO:BULLET_GER_792x57_AP AID:1 TID:2\n" +
+            "T:100 AType:1 AMMO:BULLET_GER_792x57_AP AID:1 TID:3\n" +
+            "T:100 AType:2 DMG:0.300 AID:1 TID:3 POS(1.0,2.0,3.0)\n" +
+            "T:100 AType:2 DMG:0.200 AID:1 TID:2 POS(1.0,2.0,3.0)\n" +
+            "T:150 AType:1 AMMO:BULLET_GER_792x57_AP AID:1 TID:2\n" +
+            "T:200 AType:1 AMMO:SHELL_GER_20x82_HE AID:1 TID:2\n" +
+            "T:200 AType:1 AMMO:SHELL_GER_20x82_HE AID:1 TID:2\n" +
+            "T:200 AType:2 DMG:0.400 AID:1 TID:2 POS(1.0,2.0,3.0)\n" +
+            "T:200 AType:2 DMG:0.500 AID:1 TID:2 POS(1.0,2.0,3.0)\n";
+
+    public void testHitsAreMatchedOnTickAttackerAndTarget() {
+        LogEvents events = new LogTokenizer().tokenize(LOG);
+        EventList hits = events.ofType(AType.HIT);
+        DamageJoin join = new DamageJoin(events.getStore(), events.byAttacker(1));
+
+        assertEquals(join.damageFor(hits.get(0)), 0.2f);
+        assertEquals(join.damageFor(hits.get(1)), 0.3f);
+        assertNull(join.damageFor(hits.get(2)));
+        assertEquals(join.damageFor(hits.get(3)), 0.4f);
+        assertEquals(join.damageFor(hits.get(4)), 0.5f);
+    }
+}
@@ -0,0 +1,105 @@
+package se.lu.bos.parser;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import se.lu.bos.model.Stats;
+import se.lu.bos.util.TimeUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+@Test
+public class LiveReportTest {
+
+    private static final String ROOT = "missionReport(2014-11-30_23-38-38)";
+
+    private static final String START =
+            "T:0 AType:0 GDate:1942.12.11 GTime:11:45:0 MFile:Missions/test.msnbin MID: GType:0\r\n" +
+            "T:5 AType:10 PLID:2877 PID:3877 BUL:1200 SH:0 BOMB:0 RCT:0 (1.0,2.0,3.0) NAME:Lupson TYPE:Bf 109 G-2 COUNTRY:201\r\n" +
+            "T:10 AType:12 ID:2877 TYPE:Bf 109 G-2 COUNTRY:201 NAME:noname PID:-1 POS(1.000,2.000,3.000)\r\n" +
+            "T:10 AType:12 ID:28771 TYPE:Yak-1 ser.69 COUNTRY:101 NAME:noname PID:-1 POS(1.000,2.000,3.000)\r\n" +
+            "T:50 AType:17 ID:2877 POS(10.000,100.000,10.000)\r\n";
+
+    private File folder;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        folder = File.createTempFile("reports", "");
+        folder.delete();
+        folder.mkdir();
+    }
+
+    @AfterMethod
+    public void teardown() {
+        for(File f : folder.listFiles()) {
+            f.delete();
+        }
+        folder.delete();
+    }
+
+    public void testAppendedPositionsOnlyExtendTheTrack() throws IOException {
+        append(START);
+        LiveReport live = new LiveReport(folder.getPath(), ROOT);
+        Stats first = live.poll();
+        assertEquals(first.getTrack().size(), 1);
+
+        append("T:150 AType:17 ID:2877 POS(20.000,100.000,20.000)\r\n" +
+               "T:250 AType:17 ID:2877 POS(30.000,100.000,30.000)\r\n");
+        Stats second = live.poll();
+
+        assertSame(second, first);
+        assertEquals(second.getTrack().size(), 3);
+        assertEquals(second.getTrack().getTick(2), 250);
+        assertEquals(second.getTotalDuration(), TimeUtil.gameTickToTime(250));
+    }
+
+    public void testAppendedHitsAreResolved() throws IOException {
+        append(START);
+        LiveReport live = new LiveReport(folder.getPath(), ROOT);
+        Stats first = live.poll();
+        assertEquals(first.getHits().size(), 0);
+
+        append("T:100 AType:1 AMMO:SHELL_GER_20x82_AP AID:2877 TID:28771\r\n" +
+               "T:150 AType:17 ID:2877 POS(20.000,100.000,20.000)\r\n");
+        Stats second = live.poll();
+
+        assertNotSame(second, first);
+        assertEquals(second.getHits().size(), 1);
+        assertEquals(second.getTrack().size(), 2);
+        // Stats handed out before keep the track they had
+        assertEquals(first.getTrack().size(), 1);
+    }
+
+    public void testNothingIsResolvedBeforeThePlayerSpawns() throws IOException {
+        append("T:0 AType:0 GDate:1942.12.11 GTime:11:45:0 MFile:Missions/test.msnbin MID: GType:0\r\n" +
+               "T:2 AType:12 ID:28771 TYPE:Yak-1 ser.69 COUNTRY:101 NAME:noname PID:-1 POS(1.000,2.000,3.000)\r\n" +
+               "T:3 AType:3 AID:-1 TID:28771 POS(1.000,0.000,3.000)\r\n");
+        LiveReport live = new LiveReport(folder.getPath(), ROOT);
+        Stats before = live.poll();
+        assertEquals(before.getPlayerId(), null);
+        assertEquals(before.getKills().size(), 0);
+        assertEquals(before.getTotalDuration(), TimeUtil.gameTickToTime(3));
+
+        append("T:5 AType:10 PLID:2877 PID:3877 BUL:1200 SH:0 BOMB:0 RCT:0 (1.0,2.0,3.0) NAME:Lupson TYPE:Bf 109 G-2 COUNTRY:201\r\n" +
+               "T:10 AType:12 ID:2877 TYPE:Bf 109 G-2 COUNTRY:201 NAME:noname PID:-1 POS(1.000,2.000,3.000)\r\n");
+        Stats after = live.poll();
+        assertEquals(after.getPlayerId().intValue(), 2877);
+        assertEquals(after.getPilotName(), "Lupson");
+        assertEquals(after.getKills().size(), 0);
+    }
+
+    private void append(String rows) throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(folder, ROOT + "[0].txt"), true);
+        try {
+            out.write(rows.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package se.lu.bos.parser;
+
+import org.testng.annotations.Test;
+import se.lu.bos.model.DamageShare;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class LogTokenizerTest {
+
+    private static final String LOG =
+            "T:0 AType:0 GDate:1942.12.11 GTime:11:45:0 MFile:Missions/test.msnbin MID: GType:0\r\n" +
+            "T:5 AType:10 PLID:2877 PID:3877 BUL:1200 SH:0 BOMB:0 RCT:0 (1.0,2.0,3.0) NAME:Lupson TYPE:Bf 109 G-2 COUNTRY:201\r\n" +
+            "T:10 AType:12 ID:2877 TYPE:Bf 109 G-2 COUNTRY:201 NAME:noname PID:-1 POS(1.000,2.000,3.000)\r\n" +
+            "T:10 AType:12 ID:28771 TYPE:Yak-1 ser.69 COUNTRY:101 NAME:noname PID:-1 POS(1.000,2.000,3.000)\r\n" +
+            "T:65095 AType:1 AMMO:SHELL_GER_20x82_AP AID:2877 TID:28771\r\n" +
+            "T:65095 AType:2 DMG:0.030 AID:2877 TID:28771 POS(1.000,2.000,3.000)\r\n" +
+            "T:65100 AType:1 AMMO:BULLET_RUS_762x54_AP AID:28771 TID:2877\n" +
+            "T:70670 AType:3 AID:-1 TID:28771 POS(114849.367,512.380,131898.188)\n" +
+            "garbage row\n" +
+            "T:70700 AType:99 SOMETHING:NEW\n" +
+            "T:70855 AType:18 BOTID:823295 PARENTID:28771 POS(1.000,2.000,3.000)\r\n";
+
+    public void testEventsAreIndexedByType() {
+        LogEvents events = new LogTokenizer().tokenize(LOG);
+        assertEquals(events.size(), 9);
+        assertEquals(events.ofType(AType.HIT).size(), 2);
+        assertEquals(events.ofType(AType.GAME_OBJECT_SPAWNED).size(), 2);
+        assertEquals(events.getStore().getParentId(events.ofType(AType.BOT_EJECT_LEAVE).get(0)), 28771);
+        assertEquals(events.getStore().getObjectId(events.ofType(AType.BOT_EJECT_LEAVE).get(0)), 823295);
+        assertTrue(events.ofType(AType.LANDING).isEmpty());
+        assertEquals(events.getLastTick(), 70855);
+    }
+
+    public void testAttackerAndTargetIdsDoNotMatchOnPrefix() {
+        LogEvents events = new LogTokenizer().tokenize(LOG);
+        assertEquals(events.byAttacker(2877).size(), 2);
+        assertEquals(events.byTarget(2877).size(), 1);
+        assertEquals(events.byTarget(28771).size(), 3);
+        assertEquals(events.byAttacker(-1).size(), 1);
+    }
+
+    public void testEjectionsAreIndexedByParent() {
+        LogEvents events = new LogTokenizer().tokenize(LOG);
+        assertEquals(events.ejectionsFrom(28771).size(), 1);
+        assertEquals(events.ejectionsFrom(28771).get(0), events.ofType(AType.BOT_EJECT_LEAVE).get(0));
+        assertTrue(events.ejectionsFrom(2877).isEmpty());
+        assertTrue(events.ejectionsFrom(823295).isEmpty());
+    }
+
+    public void testHitAndDamageFields() {
+        LogEvents events = new LogTokenizer().tokenize(LOG);
+        MissionEventStore store = events.getStore();
+        int hit = events.ofType(AType.HIT).get(0);
+        assertEquals(store.getTick(hit), 65095);
+        assertEquals(store.getAmmo(hit), "SHELL_GER_20x82_AP");
+        assertEquals(store.getTargetId(hit), 28771);
+        assertNull(store.getDamage(hit));
+        assertFalse(store.hasPosition(hit));
+        assertEquals(store.getDamage(events.ofType(AType.DAMAGE).get(0)), 0.030f);
+        assertEquals(store.getObjectId(events.ofType(AType.PLAYER_PLANE_SPAWN).get(0)), 2877);
+    }
+
+    public void testPositionsAndRows() {
+        LogEvents events = new LogTokenizer().tokenize(LOG);
+        MissionEventStore store = events.getStore();
+        int kill = events.ofType(AType.KILL).get(0);
+        assertTrue(store.hasPosition(kill));
+        assertEquals(store.getX(kill), 114849.367f);
+        assertEquals(store.getZ(kill), 131898.188f);
+        assertNull(store.getRow(kill));
+        assertTrue(store.getRow(events.ofType(AType.MISSION_START).get(0)).contains("GDate:1942.12.11"));
+    }
+
+    public void testOnlyPositionsOfPlayerPlanesAreKept() {
+        LogEvents events = new LogTokenizer().tokenize(
+                "T:1 AType:17 ID:2877 POS(1.000,2.000,3.000)\n" +
+                "T:5 AType:10 PLID:2877 PID:3877 BUL:1200 SH:0 BOMB:0 RCT:0 (1.0,2.0,3.0) NAME:Lupson TYPE:Bf 109 G-2 COUNTRY:201\n" +
+                "T:10 AType:17 ID:2877 POS(10.000,20.000,30.000)\n" +
+                "T:10 AType:17 ID:500 POS(11.000,21.000,31.000)\n" +
+                "T:20 AType:17 ID:2877 POS(12.000,22.000,32.000)\n" +
+                "T:30 AType:17 ID:500 POS(13.000,23.000,33.000)\n");
+        PositionTrack positions = events.getPositions();
+        assertEquals(positions.size(), 2);
+        assertEquals(events.positionsOf(2877).size(), 2);
+        assertEquals(positions.getTick(events.positionsOf(2877).get(1)), 20);
+        assertEquals(positions.getX(events.positionsOf(2877).get(1)), 12.0f);
+        assertTrue(events.positionsOf(500).isEmpty());
+        assertEquals(events.getLastTick(), 30);
+    }
+
+    public void testHitsAreCountedPerTargetAndAttacker() {
+        LogEvents events = new LogTokenizer().tokenize(
+                "T:100 AType:1 AMMO:BULLET_GER_792x57_AP AID:2877 TID:500\n" +
+                "T:110 AType:1 AMMO:BULLET_RUS_762x54_AP AID:3000 TID:500\n" +
+                "T:120 AType:1 AMMO:BULLET_RUS_762x54_AP AID:3000 TID:500\n" +
+                "T:130 AType:1 AMMO:BULLET_GER_792x57_AP AID:2877 TID:500\n" +
+                "T:140 AType:1 AMMO:BULLET_GER_792x57_AP AID:-1 TID:500\n" +
+                "T:150 AType:1 AMMO:BULLET_GER_792x57_AP AID:2877 TID:600\n" +
+                "T:160 AType:3 AID:-1 TID:500 POS(1.000,2.000,3.000)\n");
+        // 3000 was first to two hits
+        assertEquals(events.getTopAttacker(500), 3000);
+        assertEquals(events.getTopAttacker(600), 2877);
+        assertEquals(events.getTopAttacker(700), MissionEventStore.NO_ID);
+
+        // The credited attacker is listed first
+        List<DamageShare> shares = events.getDamageShares(500);
+        assertEquals(shares.size(), 2);
+        assertEquals(shares.get(0).getAttackerId().intValue(), 3000);
+        assertEquals(shares.get(0).getHits().intValue(), 2);
+        assertEquals(shares.get(0).getShare().floatValue(), 0.5f);
+        assertEquals(shares.get(1).getAttackerId().intValue(), 2877);
+        assertTrue(events.getDamageShares(700).isEmpty());
+    }
+}
@@ -0,0 +1,213 @@
+package se.lu.bos.parser;
+
+import org.testng.annotations.Test;
+import se.lu.bos.model.FlightTrack;
+import se.lu.bos.model.GameObject;
+import se.lu.bos.model.Hit;
+import se.lu.bos.model.Stats;
+import se.lu.bos.util.LogHash;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class MultiPlayerParserTest {
+
+    private static final String MISSION_START =
+            "T:0 AType:0 GDate:1942.12.11 GTime:11:45:0 MFile:Multiplayer/Dogfight/test.msnbin MID: GType:2\n";
+
+    // Shoots down a Yak
+    private static final String FIRST_PLAYER =
+            "T:5 AType:10 PLID:100 PID:101 BUL:1200 SH:0 BOMB:0 RCT:0 (1.0,2.0,3.0) NAME:Anna TYPE:Bf 109 G-2 COUNTRY:201\n" +
+            "T:10 AType:12 ID:100 TYPE:Bf 109 G-2 COUNTRY:201 NAME:noname PID:-1 POS(1.000,2.000,3.000)\n" +
+            "T:10 AType:12 ID:500 TYPE:Yak-1 ser.69 COUNTRY:101 NAME:noname PID:-1 POS(5.000,6.000,7.000)\n" +
+            "T:50 AType:17 ID:100 POS(10.000,100.000,10.000)\n" +
+            "T:100 AType:1 AMMO:SHELL_GER_20x82_AP AID:100 TID:500\n" +
+            "T:100 AType:2 DMG:0.030 AID:100 TID:500 POS(15.000,100.000,15.000)\n" +
+            "T:120 AType:1 AMMO:BULLET_RUS_762x54_AP AID:500 TID:100\n" +
+            "T:150 AType:17 ID:100 POS(20.000,100.000,20.000)\n" +
+            "T:200 AType:3 AID:100 TID:500 POS(30.000,0.000,30.000)\n" +
+            "T:250 AType:17 ID:100 POS(30.000,100.000,30.000)\n" +
+            "T:300 AType:4 PLID:100 PID:101 BUL:1000 SH:0 BOMB:0 RCT:0 (30.0,100.0,30.0)\n";
+
+    // Hits a Bf 109 that then crashes
+    private static final String SECOND_PLAYER =
+            "T:6 AType:10 PLID:200 PID:201 BUL:1500 SH:0 BOMB:0 RCT:0 (1.0,2.0,3.0) NAME:Bert TYPE:Yak-1 ser.69 COUNTRY:101\n" +
+            "T:11 AType:12 ID:200 TYPE:Yak-1 ser.69 COUNTRY:101 NAME:noname PID:-1 POS(1.000,2.000,3.000)\n" +
+            "T:11 AType:12 ID:600 TYPE:Bf 109 G-2 COUNTRY:201 NAME:noname PID:-1 POS(8.000,9.000,10.000)\n" +
+            "T:60 AType:17 ID:200 POS(40.000,200.000,40.000)\n" +
+            "T:110 AType:1 AMMO:BULLET_RUS_762x54_AP AID:200 TID:600\n" +
+            "T:130 AType:1 AMMO:BULLET_RUS_762x54_AP AID:200 TID:600\n" +
+            "T:160 AType:17 ID:200 POS(50.000,200.000,50.000)\n" +
+            "T:220 AType:3 AID:-1 TID:600 POS(60.000,0.000,60.000)\n" +
+            "T:310 AType:4 PLID:200 PID:201 BUL:1400 SH:0 BOMB:0 RCT:0 (50.0,200.0,50.0)\n";
+
+    // Both players' rows merged by tick, along with position rows of an AI plane
+    private static final String MERGED = MISSION_START +
+            "T:5 AType:10 PLID:100 PID:101 BUL:1200 SH:0 BOMB:0 RCT:0 (1.0,2.0,3.0) NAME:Anna TYPE:Bf 109 G-2 COUNTRY:201\n" +
+            "T:6 AType:10 PLID:200 PID:201 BUL:1500 SH:0 BOMB:0 RCT:0 (1.0,2.0,3.0) NAME:Bert TYPE:Yak-1 ser.69 COUNTRY:101\n" +
+            "T:10 AType:12 ID:100 TYPE:Bf 109 G-2 COUNTRY:201 NAME:noname PID:-1 POS(1.000,2.000,3.000)\n" +
+            "T:10 AType:12 ID:500 TYPE:Yak-1 ser.69 COUNTRY:101 NAME:noname PID:-1 POS(5.000,6.000,7.000)\n" +
+            "T:11 AType:12 ID:200 TYPE:Yak-1 ser.69 COUNTRY:101 NAME:noname PID:-1 POS(1.000,2.000,3.000)\n" +
+            "T:11 AType:12 ID:600 TYPE:Bf 109 G-2 COUNTRY:201 NAME:noname PID:-1 POS(8.000,9.000,10.000)\n" +
+            "T:50 AType:17 ID:100 POS(10.000,100.000,10.000)\n" +
+            "T:55 AType:17 ID:500 POS(12.000,100.000,12.000)\n" +
+            "T:60 AType:17 ID:200 POS(40.000,200.000,40.000)\n" +
+            "T:100 AType:1 AMMO:SHELL_GER_20x82_AP AID:100 TID:500\n" +
+            "T:100 AType:2 DMG:0.030 AID:100 TID:500 POS(15.000,100.000,15.000)\n" +
+            "T:110 AType:1 AMMO:BULLET_RUS_762x54_AP AID:200 TID:600\n" +
+            "T:120 AType:1 AMMO:BULLET_RUS_762x54_AP AID:500 TID:100\n" +
+            "T:130 AType:1 AMMO:BULLET_RUS_762x54_AP AID:200 TID:600\n" +
+            "T:150 AType:17 ID:100 POS(20.000,100.000,20.000)\n" +
+            "T:155 AType:17 ID:500 POS(22.000,100.000,22.000)\n" +
+            "T:160 AType:17 ID:200 POS(50.000,200.000,50.000)\n" +
+            "T:200 AType:3 AID:100 TID:500 POS(30.000,0.000,30.000)\n" +
+            "T:220 AType:3 AID:-1 TID:600 POS(60.000,0.000,60.000)\n" +
+            "T:250 AType:17 ID:100 POS(30.000,100.000,30.000)\n" +
+            "T:300 AType:4 PLID:100 PID:101 BUL:1000 SH:0 BOMB:0 RCT:0 (30.0,100.0,30.0)\n" +
+            "T:310 AType:4 PLID:200 PID:201 BUL:1400 SH:0 BOMB:0 RCT:0 (50.0,200.0,50.0)\n";
+
+    public void testEveryPlayerGetsTheirOwnStats() throws Exception {
+        List<Stats> statsList = parseMerged();
+        assertEquals(statsList.size(), 2);
+
+        Stats first = statsList.get(0);
+        assertEquals(first.getPlayerId().intValue(), 100);
+        assertEquals(first.getPilotName(), "Anna");
+        assertEquals(first.getHits().size(), 1);
+        assertEquals(first.getHitsTaken().size(), 1);
+        assertEquals(first.getKills().size(), 1);
+        assertEquals(first.getKills().get(0).getGameObjectId().intValue(), 500);
+        assertEquals(first.getTrack().size(), 3);
+
+        Stats second = statsList.get(1);
+        assertEquals(second.getPlayerId().intValue(), 200);
+        assertEquals(second.getPilotName(), "Bert");
+        assertEquals(second.getHits().size(), 2);
+        assertEquals(second.getHitsTaken().size(), 0);
+        assertEquals(second.getKills().size(), 1);
+        assertEquals(second.getKills().get(0).getGameObjectId().intValue(), 600);
+        assertEquals(second.getTrack().size(), 2);
+    }
+
+    public void testTracksOnlyHoldThePlayersOwnPositions() throws Exception {
+        List<Stats> statsList = parseMerged();
+        assertTrack(statsList.get(0).getTrack(), 50, 150, 250);
+        assertEquals(statsList.get(0).getTrack().getX(1), 20.0f);
+        assertTrack(statsList.get(1).getTrack(), 60, 160);
+        assertEquals(statsList.get(1).getTrack().getX(1), 50.0f);
+    }
+
+    public void testPlayersGetTheStatsOfTheirOwnLog() throws Exception {
+        List<Stats> statsList = parseMerged();
+        assertSameStats(statsList.get(0), parseAlone(FIRST_PLAYER));
+        assertSameStats(statsList.get(1), parseAlone(SECOND_PLAYER));
+    }
+
+    public void testPlayersShareTheHashOfTheLog() throws Exception {
+        File folder = File.createTempFile("reports", "");
+        folder.delete();
+        folder.mkdir();
+        File chunk = new File(folder, "missionReport(test)[0].txt");
+        try {
+            Writer out = new OutputStreamWriter(new FileOutputStream(chunk), "UTF-8");
+            try {
+                out.write(MERGED);
+            } finally {
+                out.close();
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                MultiPlayerParser parser = new MultiPlayerParser(null, executor);
+                List<Stats> statsList = parser.streamStatsFromRootFileName(folder.getPath(), "missionReport(test)");
+                String expected = LogHash.sha256(new Concatenator().buildFromBaseFileName(folder.getPath(), "missionReport(test)"));
+                assertEquals(statsList.get(0).getLogHash(), expected);
+                assertEquals(statsList.get(1).getLogHash(), expected);
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            chunk.delete();
+            folder.delete();
+        }
+    }
+
+    public void testStoredLogIsRebuiltForEachPlayer() throws Exception {
+        List<Stats> statsList = parseMerged();
+        for(Stats stored : statsList) {
+            Stats rebuild = new Stats();
+            rebuild.setPlayerId(stored.getPlayerId());
+            assertSameStats(new Parser().rebuildFromStoredLog(rebuild, new StringReader(MERGED)), stored);
+        }
+    }
+
+    private static List<Stats> parseMerged() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            LogEvents events = new LogTokenizer().tokenize(MERGED);
+            return new MultiPlayerParser(null, executor).buildStatsFromEvents("missionReport(test)", new Date(), events);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Stats parseAlone(String playerRows) {
+        return new Parser().buildStatsFromEvents(new Stats(), new LogTokenizer().tokenize(MISSION_START + playerRows));
+    }
+
+    private static void assertTrack(FlightTrack track, int... ticks) {
+        assertEquals(track.size(), ticks.length);
+        for(int i = 0; i < ticks.length; i++) {
+            assertEquals(track.getTick(i), ticks[i]);
+        }
+    }
+
+    // Everything but the total duration, which spans the whole mission in the merged log
+    private static void assertSameStats(Stats actual, Stats expected) {
+        assertEquals(actual.getPlayerId(), expected.getPlayerId());
+        assertEquals(actual.getPilotName(), expected.getPilotName());
+        assertEquals(actual.getPilotPlane(), expected.getPilotPlane());
+        assertEquals(actual.getStartingAmmo(), expected.getStartingAmmo());
+        assertEquals(actual.getFinalAmmo(), expected.getFinalAmmo());
+        assertEquals(actual.getFinalState(), expected.getFinalState());
+
+        assertEquals(actual.getHits().size(), expected.getHits().size());
+        for(int i = 0; i < expected.getHits().size(); i++) {
+            Hit hit = actual.getHits().get(i);
+            assertEquals(hit.getTime(), expected.getHits().get(i).getTime());
+            assertEquals(hit.getAmmo(), expected.getHits().get(i).getAmmo());
+            assertEquals(hit.getTarget(), expected.getHits().get(i).getTarget());
+        }
+        assertEquals(actual.getHitsTaken().size(), expected.getHitsTaken().size());
+        for(int i = 0; i < expected.getHitsTaken().size(); i++) {
+            Hit hit = actual.getHitsTaken().get(i);
+            assertEquals(hit.getTime(), expected.getHitsTaken().get(i).getTime());
+            assertEquals(hit.getAttacker(), expected.getHitsTaken().get(i).getAttacker());
+        }
+        assertEquals(actual.getKills().size(), expected.getKills().size());
+        for(int i = 0; i < expected.getKills().size(); i++) {
+            GameObject kill = actual.getKills().get(i);
+            assertEquals(kill.getGameObjectId(), expected.getKills().get(i).getGameObjectId());
+            assertEquals(kill.getTimeOfKill(), expected.getKills().get(i).getTimeOfKill());
+        }
+
+        FlightTrack track = actual.getTrack();
+        FlightTrack expectedTrack = expected.getTrack();
+        assertEquals(track.size(), expectedTrack.size());
+        for(int i = 0; i < expectedTrack.size(); i++) {
+            assertEquals(track.getTick(i), expectedTrack.getTick(i));
+            assertEquals(track.getX(i), expectedTrack.getX(i));
+            assertEquals(track.getY(i), expectedTrack.getY(i));
+            assertEquals(track.getZ(i), expectedTrack.getZ(i));
+        }
+    }
+}
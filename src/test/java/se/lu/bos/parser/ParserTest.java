@@ -0,0 +1,96 @@
+package se.lu.bos.parser;
+
+import org.testng.annotations.Test;
+import se.lu.bos.model.DamageShare;
+import se.lu.bos.model.Stats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class ParserTest {
+
+    private static final String LOG =
+            "T:0 AType:0 GDate:1942.12.11 GTime:11:45:0 MFile:Missions/test.msnbin MID: GType:0\r\n" +
+            "T:5 AType:10 PLID:2877 PID:3877 BUL:1200 SH:0 BOMB:0 RCT:0 (1.0,2.0,3.0) NAME:Lupson TYPE:Bf 109 G-2 COUNTRY:201\r\n" +
+            "T:10 AType:12 ID:2877 TYPE:Bf 109 G-2 COUNTRY:201 NAME:noname PID:-1 POS(1.000,2.000,3.000)\r\n" +
+            "T:10 AType:12 ID:28771 TYPE:Yak-1 ser.69 COUNTRY:101 NAME:noname PID:-1 POS(1.000,2.000,3.000)\r\n" +
+            "T:65095 AType:1 AMMO:SHELL_GER_20x82_AP AID:2877 TID:28771\r\n" +
+            "T:65095 AType:2 DMG:0.030 AID:2877 TID:28771 POS(1.000,2.000,3.000)\r\n" +
+            "T:65100 AType:1 AMMO:BULLET_RUS_762x54_AP AID:28771 TID:2877\r\n" +
+            "T:70670 AType:3 AID:-1 TID:28771 POS(114849.367,512.380,131898.188)\r\n";
+
+    public void testCleanRootName() {
+        assertEquals(Parser.cleanRootName("missionReport(2014-11-30_23-38-38)"), "missionReport20141130233838");
+    }
+
+    public void testParserKeepsNoStateBetweenReports() {
+        Parser parser = new Parser();
+        Stats first = parser.buildStatsFromEvents(new Stats(), new LogTokenizer().tokenize(LOG));
+        Stats second = parser.buildStatsFromEvents(new Stats(), new LogTokenizer().tokenize(LOG));
+        assertSameStats(second, first);
+        assertEquals(first.getKills().size(), 1);
+        assertEquals(first.getHits().size(), 1);
+        assertEquals(first.getHitsTaken().size(), 1);
+    }
+
+    public void testKillWithoutAttackerGoesToAttackerWithMostHits() {
+        Parser parser = new Parser();
+        String otherPlayerHitsMore = LOG.replace("T:70670 AType:3",
+                "T:65200 AType:1 AMMO:BULLET_RUS_762x54_AP AID:3000 TID:28771\r\n" +
+                "T:65300 AType:1 AMMO:BULLET_RUS_762x54_AP AID:3000 TID:28771\r\n" +
+                "T:70670 AType:3");
+        Stats stats = parser.buildStatsFromEvents(new Stats(), new LogTokenizer().tokenize(otherPlayerHitsMore));
+        assertEquals(stats.getHits().size(), 1);
+        assertEquals(stats.getKills().size(), 0);
+    }
+
+    public void testDestroyedObjectsGetDamageShares() {
+        Stats stats = new Parser().buildStatsFromEvents(new Stats(), new LogTokenizer().tokenize(LOG));
+        List<DamageShare> shares = stats.getKills().get(0).getDamageShares();
+        assertEquals(shares.size(), 1);
+        assertEquals(shares.get(0).getAttackerId().intValue(), 2877);
+        assertEquals(shares.get(0).getAttacker(), "Bf 109 G-2");
+        assertEquals(shares.get(0).getShare().floatValue(), 1.0f);
+    }
+
+    public void testParserIsSharedByThreads() throws Exception {
+        final Parser parser = new Parser();
+        final LogEvents events = new LogTokenizer().tokenize(LOG);
+        Stats expected = parser.buildStatsFromEvents(new Stats(), events);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Stats>> futures = new ArrayList<Future<Stats>>();
+            for(int i = 0; i < 32; i++) {
+                futures.add(executor.submit(new Callable<Stats>() {
+                    @Override
+                    public Stats call() {
+                        return parser.buildStatsFromEvents(new Stats(), events);
+                    }
+                }));
+            }
+            for(Future<Stats> future : futures) {
+                assertSameStats(future.get(), expected);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertSameStats(Stats actual, Stats expected) {
+        assertEquals(actual.getPlayerId(), expected.getPlayerId());
+        assertEquals(actual.getPilotName(), expected.getPilotName());
+        assertEquals(actual.getHits().size(), expected.getHits().size());
+        assertEquals(actual.getHitsTaken().size(), expected.getHitsTaken().size());
+        assertEquals(actual.getKills().size(), expected.getKills().size());
+        assertEquals(actual.getAssociatedObjects().size(), expected.getAssociatedObjects().size());
+        assertEquals(actual.getFinalState(), expected.getFinalState());
+    }
+}
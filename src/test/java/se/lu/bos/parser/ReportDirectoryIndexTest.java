@@ -0,0 +1,64 @@
+package se.lu.bos.parser;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class ReportDirectoryIndexTest {
+
+    private static final String ROOT = "missionReport(2014-11-30_23-38-38)";
+
+    private File folder;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        folder = File.createTempFile("reports", "");
+        folder.delete();
+        folder.mkdir();
+    }
+
+    @AfterMethod
+    public void teardown() {
+        for(File f : folder.listFiles()) {
+            f.delete();
+        }
+        folder.delete();
+    }
+
+    public void testChunksAreOrderedBySuffixNotTimestamp() throws IOException {
+        File first = create(ROOT + "[0].txt", 3000L);
+        File second = create(ROOT + "[2].txt", 2000L);
+        File third = create(ROOT + "[10].txt", 1000L);
+        create("missionReport(2014-11-30_17-14-34)[0].txt", 1000L);
+
+        ReportDirectoryIndex index = ReportDirectoryIndex.scan(folder.getPath());
+
+        assertEquals(index.getChunkFiles(ROOT), Arrays.asList(first, second, third));
+        assertEquals(index.getFirstFileDate(ROOT).getTime(), first.lastModified());
+    }
+
+    public void testOnlyReportsWithFirstChunkAreListed() throws IOException {
+        create(ROOT + "[0].txt", 1000L);
+        create("missionReport(2014-11-30_17-14-34)[1].txt", 1000L);
+        create("notes.txt", 1000L);
+
+        List<String> names = ReportDirectoryIndex.scan(folder.getPath()).getReportNames();
+
+        assertEquals(names, Arrays.asList(ROOT));
+    }
+
+    private File create(String name, long lastModified) throws IOException {
+        File f = new File(folder, name);
+        f.createNewFile();
+        f.setLastModified(lastModified);
+        return f;
+    }
+}
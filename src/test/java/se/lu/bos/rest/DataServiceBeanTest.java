@@ -56,6 +56,68 @@ public class DataServiceBeanTest {
         assertEquals(totalReport.getKillsInPlaneType().values().iterator().next().toString(), "6");
     }
 
+    @Test
+    public void testAccumulatorMatchesRxJavaAggregator() {
+        List<Stats> reports = buildStatsList();
+        assertSameTotals(TotalReportAccumulator.aggregate(reports), testee.buildAggregateReportUsingRx(reports));
+    }
+
+    @Test
+    public void testParallelAccumulatorMatchesRxJavaAggregator() {
+        List<Stats> reports = buildMixedStatsList(1000);
+        TotalReport expected = testee.buildAggregateReportUsingRx(reports);
+        assertSameTotals(TotalReportAccumulator.aggregate(reports), expected);
+        assertSameTotals(TotalReportAccumulator.aggregateParallel(reports), expected);
+    }
+
+    private void assertSameTotals(TotalReport actual, TotalReport expected) {
+        assertEquals(actual.getMissions(), expected.getMissions());
+        assertEquals(actual.getMissionsSurvived(), expected.getMissionsSurvived());
+        assertEquals(actual.getMissionsDestroyed(), expected.getMissionsDestroyed());
+        assertEquals(actual.getTotalFlightTimeSeconds(), expected.getTotalFlightTimeSeconds());
+        assertEquals(actual.getTotalFlightTime(), expected.getTotalFlightTime());
+        assertEquals(actual.getKills(), expected.getKills());
+        assertEquals(actual.getHits(), expected.getHits());
+        assertEquals(actual.getKillsByTargetType(), expected.getKillsByTargetType());
+        assertEquals(actual.getHitsByAmmoType(), expected.getHitsByAmmoType());
+        assertEquals(actual.getSortiesPerPlaneType(), expected.getSortiesPerPlaneType());
+        assertEquals(actual.getKillsInPlaneType(), expected.getKillsInPlaneType());
+    }
+
+    // Reports in different planes and end states, with turret kills that must not be counted and varying ammo.
+    private List<Stats> buildMixedStatsList(int count) {
+        String[] planes = {"FW-190A3", "Bf 109 G-2", "Bf 109 F-4"};
+        String[] ammo = {"7.92 AP", "13mm HE", "20mm MG 151"};
+        List<Stats> statsList = new ArrayList<Stats>();
+        for(int a = 0; a < count; a++) {
+            Stats stats = new Stats();
+            stats.setCreated(new Date());
+            stats.setFinalState(a % 3 == 0 ? State.DESTROYED : State.ALIVE);
+            stats.setMissionName("ABC" + a);
+            stats.setRootFileName("ROOT" + a);
+            stats.setPilotPlane(planes[a % planes.length]);
+            stats.setPilotName("John Doe");
+            stats.setTotalDuration("00:" + (10 + a % 40) + ":" + (10 + a % 50));
+
+            List<GameObject> kills = a % 7 == 0 ? new ArrayList<GameObject>() : buildKillsList(a);
+            if(a % 5 == 0) {
+                GameObject turret = new GameObject();
+                turret.setType("Turret_Pe-2");
+                turret.setParentId(a);
+                kills.add(turret);
+            }
+            stats.setKills(kills);
+
+            List<Hit> hits = buildHitsList(a);
+            for(int b = 0; b < hits.size(); b++) {
+                hits.get(b).setAmmo(ammo[(a + b) % ammo.length]);
+            }
+            stats.setHits(hits);
+            statsList.add(stats);
+        }
+        return statsList;
+    }
+
     private List<Stats> buildStatsList() {
         List<Stats> statsList = new ArrayList<Stats>();
         for(int a = 0; a < 2 ; a++) {
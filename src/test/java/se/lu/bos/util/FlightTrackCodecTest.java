@@ -0,0 +1,44 @@
+package se.lu.bos.util;
+
+import org.testng.annotations.Test;
+import se.lu.bos.model.FlightTrack;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class FlightTrackCodecTest {
+
+    public void testRoundTripKeepsTicksAndCentimetres() {
+        FlightTrack track = new FlightTrack();
+        track.add(5, 114849.367f, 512.380f, 131898.188f);
+        track.add(41069, 226705.891f, 3185.417f, 355836.938f);
+        track.add(41070, -12.5f, 0f, 355830.01f);
+        track.add(41070, -12.5f, 0f, 355830.01f);
+
+        FlightTrack decoded = FlightTrackCodec.decode(FlightTrackCodec.encode(track));
+
+        // Half a centimetre of quantization plus the rounding of a float that far out
+        float delta = 0.015f;
+        assertEquals(decoded.size(), 4);
+        for(int i = 0; i < track.size(); i++) {
+            assertEquals(decoded.getTick(i), track.getTick(i));
+            assertEquals(decoded.getX(i), track.getX(i), delta);
+            assertEquals(decoded.getY(i), track.getY(i), delta);
+            assertEquals(decoded.getZ(i), track.getZ(i), delta);
+        }
+    }
+
+    public void testEmptyTrack() {
+        assertEquals(FlightTrackCodec.decode(FlightTrackCodec.encode(new FlightTrack())).size(), 0);
+    }
+
+    public void testCloseConsecutivePositionsTakeFewBytes() {
+        FlightTrack track = new FlightTrack();
+        for(int i = 0; i < 1000; i++) {
+            track.add(1000 + i * 50, 226705.891f + i * 10, 3185.417f, 355836.938f - i * 10);
+        }
+        // One byte for each tick and y delta, three for each x and z delta
+        assertTrue(FlightTrackCodec.encode(track).length < 1000 * 8 + 32);
+    }
+}
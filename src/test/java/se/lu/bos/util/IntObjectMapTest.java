@@ -0,0 +1,30 @@
+package se.lu.bos.util;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@Test
+public class IntObjectMapTest {
+
+    public void testPutAndGetAcrossResize() {
+        IntObjectMap<String> map = new IntObjectMap<String>();
+        for(int i = -1; i < 10000; i++) {
+            map.put(i * 7, "v" + i);
+        }
+        assertEquals(map.size(), 10001);
+        assertEquals(map.get(-7), "v-1");
+        assertEquals(map.get(0), "v0");
+        assertEquals(map.get(7 * 9999), "v9999");
+        assertNull(map.get(1));
+    }
+
+    public void testPutIfAbsentKeepsFirstValue() {
+        IntObjectMap<String> map = new IntObjectMap<String>();
+        assertNull(map.putIfAbsent(2877, "first"));
+        assertEquals(map.putIfAbsent(2877, "second"), "first");
+        assertEquals(map.get(2877), "first");
+        assertNull(map.get(28771));
+    }
+}
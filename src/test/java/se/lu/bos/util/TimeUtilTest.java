@@ -33,4 +33,13 @@ public class TimeUtilTest {
         String hm = TimeUtil.fromSeconds(24*5400+130);
         assertEquals(hm, "1 day, 12 hours, 2 minutes and 10 seconds");
     }
+
+    public void testParseDayIsStartOfDay() {
+        assertEquals(TimeUtil.parseDate(TimeUtil.parseDay("2014-12-31")), "2014-12-31 00:00");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testParseDayRejectsGarbage() {
+        TimeUtil.parseDay("31/12/2014");
+    }
 }
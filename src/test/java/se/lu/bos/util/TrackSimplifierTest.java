@@ -0,0 +1,95 @@
+package se.lu.bos.util;
+
+import org.testng.annotations.Test;
+import se.lu.bos.model.FlightTrack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class TrackSimplifierTest {
+
+    public void testStraightLineKeepsEndPoints() {
+        FlightTrack track = new FlightTrack();
+        for(int i = 0; i < 10; i++) {
+            track.add(i, i * 100f, 1000f, i * 50f);
+        }
+        FlightTrack simplified = TrackSimplifier.simplify(track, TrackSimplifier.rank(track), 1f);
+        assertEquals(simplified.size(), 2);
+        assertEquals(simplified.getTick(0), 0);
+        assertEquals(simplified.getTick(1), 9);
+    }
+
+    public void testRanksGiveSameResultAsDouglasPeucker() {
+        FlightTrack track = randomWalk(2000);
+        float[] ranks = TrackSimplifier.rank(track);
+        for(float tolerance : new float[] {0f, 5f, 50f, 500f, 5000f}) {
+            List<Integer> expected = new ArrayList<Integer>();
+            expected.add(0);
+            douglasPeucker(track, 0, track.size() - 1, tolerance, expected);
+            expected.add(track.size() - 1);
+
+            FlightTrack simplified = TrackSimplifier.simplify(track, ranks, tolerance);
+            assertEquals(simplified.size(), expected.size());
+            for(int i = 0; i < expected.size(); i++) {
+                assertEquals(simplified.getTick(i), track.getTick(expected.get(i)));
+            }
+        }
+    }
+
+    public void testMaxPositions() {
+        FlightTrack track = randomWalk(2000);
+        float[] ranks = TrackSimplifier.rank(track);
+        FlightTrack simplified = TrackSimplifier.simplify(track, ranks, 100);
+        assertTrue(simplified.size() <= 100);
+        assertTrue(simplified.size() > 90);
+        assertEquals(simplified.getTick(0), track.getTick(0));
+        assertEquals(simplified.getTick(simplified.size() - 1), track.getTick(track.size() - 1));
+        assertEquals(TrackSimplifier.simplify(track, ranks, 5000).size(), 2000);
+    }
+
+    private static FlightTrack randomWalk(int size) {
+        Random random = new Random(17);
+        FlightTrack track = new FlightTrack();
+        float x = 100000f;
+        float z = 200000f;
+        for(int i = 0; i < size; i++) {
+            x += random.nextFloat() * 400f - 150f;
+            z += random.nextFloat() * 400f - 250f;
+            track.add(i * 50, x, 1500f, z);
+        }
+        return track;
+    }
+
+    // The plain recursive algorithm, adds the kept positions between first and last in order
+    private static void douglasPeucker(FlightTrack track, int first, int last, float tolerance, List<Integer> kept) {
+        int farthest = -1;
+        double maxDistance = -1;
+        for(int i = first + 1; i < last; i++) {
+            double distance = distance(track, i, first, last);
+            if(distance > maxDistance) {
+                maxDistance = distance;
+                farthest = i;
+            }
+        }
+        if(farthest != -1 && (float) maxDistance > tolerance) {
+            douglasPeucker(track, first, farthest, tolerance, kept);
+            kept.add(farthest);
+            douglasPeucker(track, farthest, last, tolerance, kept);
+        }
+    }
+
+    private static double distance(FlightTrack track, int i, int first, int last) {
+        double dx = track.getX(last) - track.getX(first);
+        double dz = track.getZ(last) - track.getZ(first);
+        double t = ((track.getX(i) - track.getX(first)) * dx + (track.getZ(i) - track.getZ(first)) * dz) / (dx * dx + dz * dz);
+        t = Math.max(0, Math.min(1, t));
+        double ex = track.getX(i) - (track.getX(first) + t * dx);
+        double ez = track.getZ(i) - (track.getZ(first) + t * dz);
+        return Math.sqrt(ex * ex + ez * ez);
+    }
+}